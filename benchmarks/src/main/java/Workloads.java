@@ -0,0 +1,183 @@
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+
+/**
+ * The work measured by the benchmarks in fractals.benchmarks. The classes of the application are in the
+ * unnamed package, which classes in a package can not import, and JMH benchmarks must be in a package.
+ * So the benchmarks call these static methods through method handles, see fractals.benchmarks.Bridge,
+ * and only pass JDK types across
+ */
+public class Workloads {
+	/** Frame size of the frame benchmarks, the aspect ratio of the default view */
+	public static final int WIDTH = 640, HEIGHT = 512;
+
+	/**
+	 * Iterates a row of points of the Mandelbrot set with Complex objects, the way the first versions did
+	 * @param real real parts of the points
+	 * @param imaginary imaginary part of the row
+	 * @param maxIterations max iterations
+	 * @return total iterations of the row
+	 */
+	public static int complexRow(double[] real, double imaginary, int maxIterations) {
+		int total = 0;
+		for (double cr : real) {
+			Complex c = new Complex(cr, imaginary);
+			Complex z = new Complex(0, 0);
+			int iterations = 0;
+			while (iterations < maxIterations && z.modulusSquared() < 4) {
+				z.square();
+				z.add(c);
+				iterations++;
+			}
+			total += iterations;
+		}
+		return total;
+	}
+
+	/**
+	 * Iterates a row of points of the Mandelbrot set with the primitive loop of EscapeTime,
+	 * without interior or periodicity checks so it does the same work as complexRow
+	 * @param real real parts of the points
+	 * @param imaginary imaginary part of the row
+	 * @param maxIterations max iterations
+	 * @return total iterations of the row
+	 */
+	public static int primitiveRow(double[] real, double imaginary, int maxIterations) {
+		EscapeTime kernel = new EscapeTime(maxIterations, false, false);
+		int total = 0;
+		for (double cr : real) {
+			total += kernel.mandelbrot(cr, imaginary);
+		}
+		return total;
+	}
+
+	/**
+	 * Iterates a row of points of the Mandelbrot set with the vector row kernel, in doubles or floats
+	 * @param real real parts of the points
+	 * @param imaginary imaginary part of the row
+	 * @param maxIterations max iterations
+	 * @param floats true to iterate in floats
+	 * @param iterations iterations of each point, as long as real
+	 * @param zr final z of each point, as long as real
+	 * @param zi final z of each point, as long as real
+	 * @return total iterations of the row, or -1 if the JVM has no jdk.incubator.vector
+	 */
+	public static int vectorRow(double[] real, double imaginary, int maxIterations, boolean floats, int[] iterations, double[] zr, double[] zi) {
+		if (RowKernel.VECTOR == null) {
+			return -1;
+		}
+		if (floats) {
+			RowKernel.VECTOR.mandelbrotFloat(real, imaginary, real.length, maxIterations, false, false, iterations, null, zr, zi);
+		} else {
+			RowKernel.VECTOR.mandelbrot(real, imaginary, real.length, maxIterations, false, 0, iterations, null, zr, zi);
+		}
+		int total = 0;
+		for (int count : iterations) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Makes a renderer
+	 * @param threads number of render threads
+	 * @param virtualThreads true to draw tiles on virtual threads
+	 * @param vectorised true to use the vector row kernel
+	 * @param renderMode name of a FractalRenderer.RenderMode
+	 * @return renderer
+	 */
+	public static Object renderer(int threads, boolean virtualThreads, boolean vectorised, String renderMode) {
+		FractalRenderer renderer = new FractalRenderer("benchmark", threads, virtualThreads);
+		renderer.setVectorised(vectorised);
+		renderer.setRenderMode(FractalRenderer.RenderMode.valueOf(renderMode));
+		return renderer;
+	}
+
+	/**
+	 * Draws a frame of the Mandelbrot set from scratch, without reusing the last frame
+	 * @param renderer renderer made by renderer
+	 * @param view DEFAULT, SEAHORSE or INTERIOR
+	 * @param maxIterations max iterations
+	 * @return image of the frame
+	 */
+	public static Object renderFrame(Object renderer, String view, int maxIterations) {
+		FractalRenderer fractal = (FractalRenderer) renderer;
+		BigDecimal[] edges = view(view);
+		fractal.clearLastFrame();
+		BufferedImage image = fractal.render(fractal.newJob(RenderJob.Type.MANDELBROT, WIDTH, HEIGHT, edges[0], edges[1], edges[2], edges[3], maxIterations, 0, 0));
+		if (image == null) {
+			throw new IllegalStateException("render was cancelled");
+		}
+		return image;
+	}
+
+	/**
+	 * Colours the last frame of a renderer again with a palette, without iterating it
+	 * @param renderer renderer made by renderer, which drew a frame
+	 * @param palette HUE, FIRE or GREYSCALE
+	 * @return image of the frame
+	 */
+	public static Object recolour(Object renderer, String palette) {
+		FractalRenderer fractal = (FractalRenderer) renderer;
+		fractal.setPalette(palette(palette));
+		return fractal.recolour();
+	}
+
+	/**
+	 * Colours smooth iteration counts with a palette on the calling thread, the cost of colouring alone
+	 * @param palette HUE, FIRE or GREYSCALE
+	 * @param smooth smooth iteration counts
+	 * @param pixels colours, as long as smooth
+	 * @return pixels
+	 */
+	public static int[] colour(String palette, float[] smooth, int[] pixels) {
+		Palette colours = palette(palette);
+		for (int i = 0; i < smooth.length; i++) {
+			pixels[i] = colours.colour(smooth[i], 90, 0.6);
+		}
+		return pixels;
+	}
+
+	/**
+	 * Stops the render threads of a renderer
+	 * @param renderer renderer made by renderer
+	 */
+	public static void shutdown(Object renderer) {
+		((FractalRenderer) renderer).shutdown();
+	}
+
+	/**
+	 * Gets the edges of a standard view
+	 * @param view DEFAULT for the whole set, SEAHORSE for the seahorse valley, INTERIOR for a view inside the main cardioid
+	 * @return xMin, xMax, yMin, yMax
+	 */
+	private static BigDecimal[] view(String view) {
+		switch (view) {
+		case "DEFAULT":
+			return edges("-2", "2", "-1.6", "1.6");
+		case "SEAHORSE":
+			return edges("-0.753", "-0.733", "-0.13", "-0.114");
+		case "INTERIOR":
+			return edges("-0.3", "-0.1", "-0.08", "0.08");
+		default:
+			throw new IllegalArgumentException("Unknown view: " + view);
+		}
+	}
+
+	private static BigDecimal[] edges(String xMin, String xMax, String yMin, String yMax) {
+		return new BigDecimal[] {new BigDecimal(xMin), new BigDecimal(xMax), new BigDecimal(yMin), new BigDecimal(yMax)};
+	}
+
+	private static Palette palette(String palette) {
+		switch (palette) {
+		case "HUE":
+			return Palette.HUE;
+		case "FIRE":
+			return Palette.FIRE;
+		case "GREYSCALE":
+			return Palette.GREYSCALE;
+		default:
+			throw new IllegalArgumentException("Unknown palette: " + palette);
+		}
+	}
+}
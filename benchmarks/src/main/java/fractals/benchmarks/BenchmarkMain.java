@@ -0,0 +1,30 @@
+package fractals.benchmarks;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JMH benchmarks, writing the results as JSON to jmh-{version}-{yyyyMMdd-HHmmss}.json unless -rf or -rff
+ * is given, so results of each version and run can be kept and compared to find regressions. Every other option is passed to JMH,
+ * such as a regular expression of the benchmarks to run or -h for help
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		List<String> options = new ArrayList<>(Arrays.asList(args));
+		if (!options.contains("-rf")) {
+			options.add("-rf");
+			options.add("json");
+		}
+		if (!options.contains("-rff")) {
+			String version = BenchmarkMain.class.getPackage().getImplementationVersion();
+			options.add("-rff");
+			String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+			options.add("jmh-" + (version == null ? "dev" : version) + "-" + time + ".json");
+		}
+		org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+	}
+}
@@ -0,0 +1,40 @@
+package fractals.benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Method handles of the static methods of Workloads, which is in the unnamed package like the rest of the
+ * application. They are static final, so the JIT inlines them like direct calls and the benchmarks do not
+ * measure the reflection
+ */
+final class Bridge {
+	static final MethodHandle COMPLEX_ROW = find("complexRow", int.class, double[].class, double.class, int.class);
+	static final MethodHandle PRIMITIVE_ROW = find("primitiveRow", int.class, double[].class, double.class, int.class);
+	static final MethodHandle VECTOR_ROW = find("vectorRow", int.class, double[].class, double.class, int.class, boolean.class,
+			int[].class, double[].class, double[].class);
+	static final MethodHandle RENDERER = find("renderer", Object.class, int.class, boolean.class, boolean.class, String.class);
+	static final MethodHandle RENDER_FRAME = find("renderFrame", Object.class, Object.class, String.class, int.class);
+	static final MethodHandle RECOLOUR = find("recolour", Object.class, Object.class, String.class);
+	static final MethodHandle COLOUR = find("colour", int[].class, String.class, float[].class, int[].class);
+	static final MethodHandle SHUTDOWN = find("shutdown", void.class, Object.class);
+
+	private Bridge() {
+	}
+
+	/**
+	 * Finds a static method of Workloads
+	 * @param name name of the method
+	 * @param returnType return type
+	 * @param parameters parameter types
+	 * @return method handle
+	 */
+	private static MethodHandle find(String name, Class<?> returnType, Class<?>... parameters) {
+		try {
+			return MethodHandles.lookup().findStatic(Class.forName("Workloads"), name, MethodType.methodType(returnType, parameters));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+}
@@ -0,0 +1,52 @@
+package fractals.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of colouring, apart from iterating. recolour colours a whole 640x512 frame of the seahorse valley
+ * on one render thread, palette colours the same number of random smooth iteration counts on the benchmark thread
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ColouringBenchmark {
+	private static final int PIXELS = 640 * 512;
+
+	@Param({"HUE", "FIRE", "GREYSCALE"})
+	public String palette;
+
+	private Object renderer;
+	private final float[] smooth = new float[PIXELS];
+	private final int[] pixels = new int[PIXELS];
+
+	@Setup
+	public void setUp() throws Throwable {
+		renderer = (Object) Bridge.RENDERER.invokeExact(1, false, false, "BRUTE_FORCE");
+		//Draws a frame for recolour to colour again
+		Bridge.RENDER_FRAME.invoke(renderer, "SEAHORSE", 1000);
+		Random random = new Random(1);
+		for (int i = 0; i < PIXELS; i++) {
+			smooth[i] = random.nextFloat() * 1000;
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Throwable {
+		Bridge.SHUTDOWN.invokeExact(renderer);
+	}
+
+	@Benchmark
+	public Object recolour() throws Throwable {
+		return (Object) Bridge.RECOLOUR.invokeExact(renderer, palette);
+	}
+
+	@Benchmark
+	public int[] palette() throws Throwable {
+		return (int[]) Bridge.COLOUR.invokeExact(palette, smooth, pixels);
+	}
+}
@@ -0,0 +1,57 @@
+package fractals.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost per pixel of the escape time loop on a row of points across the seahorse valley, with Complex objects,
+ * with the primitive loop of EscapeTime, and with the vector row kernel in doubles and floats.
+ * None of them use interior or periodicity checks, so they all do the same iterations
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class EscapeLoopBenchmark {
+	private static final int POINTS = 1024;
+	private static final double LEFT = -0.7475, RIGHT = -0.7465, IMAGINARY = 0.1;
+
+	@Param({"1000"})
+	public int maxIterations;
+
+	private final double[] real = new double[POINTS], zr = new double[POINTS], zi = new double[POINTS];
+	private final int[] iterations = new int[POINTS];
+
+	@Setup
+	public void setUp() {
+		for (int i = 0; i < POINTS; i++) {
+			real[i] = LEFT + i * (RIGHT - LEFT) / POINTS;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int complex() throws Throwable {
+		return (int) Bridge.COMPLEX_ROW.invokeExact(real, IMAGINARY, maxIterations);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int primitive() throws Throwable {
+		return (int) Bridge.PRIMITIVE_ROW.invokeExact(real, IMAGINARY, maxIterations);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int vector() throws Throwable {
+		return (int) Bridge.VECTOR_ROW.invokeExact(real, IMAGINARY, maxIterations, false, iterations, zr, zi);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POINTS)
+	public int vectorFloat() throws Throwable {
+		return (int) Bridge.VECTOR_ROW.invokeExact(real, IMAGINARY, maxIterations, true, iterations, zr, zi);
+	}
+}
@@ -0,0 +1,45 @@
+package fractals.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Time to draw a 640x512 frame of the Mandelbrot set from scratch on one render thread, at the default view,
+ * in the seahorse valley and inside the main cardioid, with each render mode and with and without the vector kernel
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class FrameBenchmark {
+	@Param({"DEFAULT", "SEAHORSE", "INTERIOR"})
+	public String view;
+
+	@Param({"BRUTE_FORCE", "MARIANI_SILVER"})
+	public String renderMode;
+
+	@Param({"false", "true"})
+	public boolean vectorised;
+
+	@Param({"1000"})
+	public int maxIterations;
+
+	private Object renderer;
+
+	@Setup
+	public void setUp() throws Throwable {
+		renderer = (Object) Bridge.RENDERER.invokeExact(1, false, vectorised, renderMode);
+	}
+
+	@TearDown
+	public void tearDown() throws Throwable {
+		Bridge.SHUTDOWN.invokeExact(renderer);
+	}
+
+	@Benchmark
+	public Object render() throws Throwable {
+		return (Object) Bridge.RENDER_FRAME.invokeExact(renderer, view, maxIterations);
+	}
+}
@@ -0,0 +1,36 @@
+package fractals.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Time to draw a 640x512 frame of the seahorse valley from scratch with more render threads,
+ * to see how the tile scheduler scales with the cores
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class ScalingBenchmark {
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	private Object renderer;
+
+	@Setup
+	public void setUp() throws Throwable {
+		renderer = (Object) Bridge.RENDERER.invokeExact(threads, false, false, "BRUTE_FORCE");
+	}
+
+	@TearDown
+	public void tearDown() throws Throwable {
+		Bridge.SHUTDOWN.invokeExact(renderer);
+	}
+
+	@Benchmark
+	public Object render() throws Throwable {
+		return (Object) Bridge.RENDER_FRAME.invokeExact(renderer, "SEAHORSE", 1000);
+	}
+}
@@ -0,0 +1,316 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders images of the Mandelbrot set and Juliaset to PNG files without opening a window, for scripts
+ * and render machines without a display. Images are drawn and written a band of rows at a time, so they
+ * can be far larger than the heap.
+ * Run with java -Djava.awt.headless=true BatchRender [-jobs file] [-parallel n] [setting=value ...]
+ * <p>
+ * An image is described by settings, any setting which is left out takes its default:
+ * <pre>
+ * type=mandelbrot          mandelbrot or julia
+ * size=1000x800            width x height in pixels
+ * view=-2,2,-1.6,1.6       xMin,xMax,yMin,yMax, y is the negated imaginary part as in the GUI
+ * iterations=1000          max iterations
+ * c=-0.8,0.156             c of the Juliaset
+ * palette=hue              hue, fire or greyscale
+ * out=fractal.png          file the image is saved to
+ * data=                    iteration file the smooth iteration counts are kept in, none if empty
+ * workers=                 host:port of RenderWorkers separated by commas, none if empty
+ * </pre>
+ * With data the image is drawn into a memory-mapped IterationFile and coloured from it, so it can be larger
+ * than memory. If the file is already there its own fractal, size and coordinates are used instead of the
+ * settings, only its unfinished tiles are drawn, and it can be coloured again with another palette without
+ * iterating anything.
+ * With workers the tiles of the iteration file are drawn by RenderWorker processes instead, see RenderCoordinator,
+ * and the image is only coloured here. Without data a temporary iteration file is used.
+ * Without -jobs the settings on the command line make one image. With -jobs every line of the job file
+ * makes an image, with the settings on the command line as defaults. Blank lines and lines starting with #
+ * are skipped. -parallel sets how many images are drawn at once, the render threads are shared out between them
+ */
+public class BatchRender {
+	private static final String DEFAULTS = "type=mandelbrot size=1000x800 view=-2,2,-1.6,1.6 iterations=1000 c=-0.8,0.156 palette=hue out=fractal.png data= workers=";
+
+	public static void main(String[] args) throws InterruptedException {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		String jobFile = null;
+		int parallel = 1;
+		StringBuilder settings = new StringBuilder();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-jobs") && i + 1 < args.length) {
+					jobFile = args[++i];
+				} else if (args[i].equals("-parallel") && i + 1 < args.length) {
+					parallel = Integer.parseInt(args[++i]);
+				} else if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				} else {
+					settings.append(' ').append(args[i]);
+				}
+			}
+			if (parallel < 1) {
+				throw new IllegalArgumentException("Parallel images must be positive: " + parallel);
+			}
+
+			Map<String, String> defaults = parse(DEFAULTS, new LinkedHashMap<>(), DEFAULTS);
+			defaults = parse(settings.toString(), defaults, DEFAULTS);
+			List<Image> images = new ArrayList<>();
+			if (jobFile == null) {
+				images.add(new Image(defaults));
+			} else {
+				for (String line : Files.readAllLines(Paths.get(jobFile))) {
+					if (!line.isBlank() && !line.trim().startsWith("#")) {
+						images.add(new Image(parse(line, new LinkedHashMap<>(defaults), DEFAULTS)));
+					}
+				}
+				if (images.isEmpty()) {
+					throw new IllegalArgumentException("No images in " + jobFile);
+				}
+			}
+			int failed = render(images, parallel, Integer.getInteger("fractal.threads", Runtime.getRuntime().availableProcessors()));
+			System.exit(failed == 0 ? 0 : 1);
+		} catch (IllegalArgumentException | IOException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java -Djava.awt.headless=true BatchRender [-jobs file] [-parallel n] [setting=value ...]");
+			System.err.println("Settings and defaults: " + DEFAULTS);
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Renders images, several at once. Each image being drawn has a renderer of its own, with an even share
+	 * of the render threads, and renderers are used again for the images after it
+	 * @param images images to render
+	 * @param parallel number of images drawn at once
+	 * @param threads number of render threads shared out between the images drawn at once
+	 * @return number of images which could not be rendered or saved
+	 */
+	private static int render(List<Image> images, int parallel, int threads) throws InterruptedException {
+		parallel = Math.min(parallel, images.size());
+		BlockingQueue<FractalRenderer> renderers = new ArrayBlockingQueue<>(parallel);
+		for (int i = 0; i < parallel; i++) {
+			renderers.add(new FractalRenderer("batch-" + i, Math.max(1, threads / parallel), Boolean.getBoolean("fractal.virtualThreads")));
+		}
+		AtomicInteger failed = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(parallel);
+		for (Image image : images) {
+			pool.execute(() -> {
+				FractalRenderer renderer = renderers.remove();
+				try {
+					long start = System.nanoTime();
+					String size = image.render(renderer);
+					System.out.printf("%s %s %d ms%n", image.out, size, (System.nanoTime() - start) / 1000000);
+				} catch (IOException | RuntimeException e) {
+					System.err.println(image.out + ": " + e);
+					failed.incrementAndGet();
+				} finally {
+					renderers.add(renderer);
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		renderers.forEach(FractalRenderer::shutdown);
+		return failed.get();
+	}
+
+	/**
+	 * Reads settings of the form key=value separated by spaces
+	 * @param line settings
+	 * @param settings settings to add to, a key which is already there is replaced
+	 * @param defaults every setting with its default, only their keys are allowed
+	 * @return settings
+	 */
+	static Map<String, String> parse(String line, Map<String, String> settings, String defaults) {
+		Set<String> keys = new HashSet<>();
+		for (String setting : defaults.split(" ")) {
+			keys.add(setting.substring(0, setting.indexOf('=')));
+		}
+		for (String setting : line.trim().split("\\s+")) {
+			if (setting.isEmpty()) {
+				continue;
+			}
+			int equals = setting.indexOf('=');
+			if (equals <= 0) {
+				throw new IllegalArgumentException("Setting is not key=value: " + setting);
+			}
+			String key = setting.substring(0, equals);
+			if (!keys.contains(key)) {
+				throw new IllegalArgumentException("Unknown setting: " + key);
+			}
+			settings.put(key, setting.substring(equals + 1));
+		}
+		return settings;
+	}
+
+	/**
+	 * Reads numbers separated by commas
+	 * @param value numbers
+	 * @param count number of numbers there should be
+	 * @param key setting the numbers are for, for the error message
+	 * @return numbers
+	 */
+	static BigDecimal[] numbers(String value, int count, String key) {
+		String[] parts = value.split(",");
+		if (parts.length != count) {
+			throw new IllegalArgumentException(key + " needs " + count + " numbers separated by commas: " + value);
+		}
+		BigDecimal[] numbers = new BigDecimal[count];
+		for (int i = 0; i < count; i++) {
+			try {
+				numbers[i] = new BigDecimal(parts[i].trim());
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException(key + " is not a number: " + parts[i]);
+			}
+		}
+		return numbers;
+	}
+
+	/**
+	 * Reads the type setting
+	 * @param value mandelbrot or julia
+	 * @return which fractal to draw
+	 */
+	static RenderJob.Type type(String value) {
+		switch (value) {
+		case "mandelbrot":
+			return RenderJob.Type.MANDELBROT;
+		case "julia":
+			return RenderJob.Type.JULIA;
+		default:
+			throw new IllegalArgumentException("type is mandelbrot or julia: " + value);
+		}
+	}
+
+	/**
+	 * Reads the palette setting
+	 * @param value hue, fire or greyscale
+	 * @return palette
+	 */
+	static Palette palette(String value) {
+		switch (value) {
+		case "hue":
+			return Palette.HUE;
+		case "fire":
+			return Palette.FIRE;
+		case "greyscale":
+			return Palette.GREYSCALE;
+		default:
+			throw new IllegalArgumentException("palette is hue, fire or greyscale: " + value);
+		}
+	}
+
+	/**
+	 * One image to render, read from its settings
+	 */
+	private static final class Image {
+		private final RenderJob.Type type;
+		private final int width, height, maxIterations;
+		private final BigDecimal[] view;
+		private final double cr, ci;
+		private final Palette palette;
+		private final String out, data;
+		private final List<InetSocketAddress> workers;
+
+		public Image(Map<String, String> settings) {
+			type = type(settings.get("type"));
+			String[] size = settings.get("size").split("x");
+			try {
+				width = Integer.parseInt(size[0]);
+				height = size.length == 2 ? Integer.parseInt(size[1]) : -1;
+				maxIterations = Integer.parseInt(settings.get("iterations"));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("size is widthxheight and iterations a whole number: " + e.getMessage());
+			}
+			if (width < 1 || height < 1 || maxIterations < 1) {
+				throw new IllegalArgumentException("size and iterations must be positive");
+			}
+			view = numbers(settings.get("view"), 4, "view");
+			BigDecimal[] c = numbers(settings.get("c"), 2, "c");
+			cr = c[0].doubleValue();
+			ci = c[1].doubleValue();
+			palette = palette(settings.get("palette"));
+			out = settings.get("out");
+			data = settings.get("data");
+			workers = settings.get("workers").isEmpty() ? null : RenderCoordinator.parseWorkers(settings.get("workers"));
+		}
+
+		/**
+		 * Draws the image a band at a time and streams it to its file, so images of any size can be drawn
+		 * @param renderer renderer to draw with, no other image is drawn with it at the same time
+		 * @return size of the image saved, as widthxheight
+		 */
+		public String render(FractalRenderer renderer) throws IOException {
+			renderer.setPalette(palette);
+			File file = new File(out);
+			if (file.getParentFile() != null) {
+				file.getParentFile().mkdirs();
+			}
+			if (!data.isEmpty()) {
+				return renderFile(renderer, Paths.get(data), file);
+			}
+			if (workers != null) {
+				Path temporary = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".iter");
+				try {
+					return renderFile(renderer, temporary, file);
+				} finally {
+					Files.delete(temporary);
+				}
+			}
+			try (PngWriter png = new PngWriter(new FileOutputStream(file), width, height)) {
+				if (!renderer.renderBands(type, width, height, view[0], view[1], view[2], view[3], maxIterations, cr, ci, (y, band) -> png.writeRows(band))) {
+					throw new IllegalStateException("render was cancelled");
+				}
+			}
+			return width + "x" + height;
+		}
+
+		/**
+		 * Draws the image into an iteration file, opening the file if it is already there, then colours it
+		 * from the file and saves it. The tiles are drawn by the workers if there are any
+		 * @param renderer renderer to draw with
+		 * @param path iteration file, made if it is not there or empty
+		 * @param file PNG file to save to
+		 * @return size of the image saved, as widthxheight
+		 */
+		private String renderFile(FractalRenderer renderer, Path path, File file) throws IOException {
+			try (IterationFile iterations = Files.exists(path) && Files.size(path) > 0 ? IterationFile.open(path)
+					: IterationFile.create(path, type, width, height, view[0], view[1], view[2], view[3], maxIterations, cr, ci)) {
+				if (workers != null) {
+					try {
+						if (!new RenderCoordinator(workers).render(iterations)) {
+							throw new IOException("every worker was dropped before the image was finished");
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("render was interrupted");
+					}
+				} else if (!renderer.renderToFile(iterations)) {
+					throw new IllegalStateException("render was cancelled");
+				}
+				try (PngWriter png = new PngWriter(new FileOutputStream(file), iterations.getWidth(), iterations.getHeight())) {
+					renderer.exportFile(iterations, png);
+				}
+				return iterations.getWidth() + "x" + iterations.getHeight();
+			}
+		}
+	}
+}
@@ -1,81 +1,103 @@
-import java.awt.*;
-import javax.swing.*;
-import javax.swing.border.*;
-
-/**
- * Creates the GUI
- * @author Vedant
- */
-public class DisplayFrame extends JFrame {
-	private Fractal set, juliaset;
-	private DetailsPanel panel;
-	private FractalListener listener;
-	private GridBagConstraints cns; 
-	
-	public DisplayFrame(String name) {
-		super(name);
-	}
-	
-	/**
-	 * Adds the Details Panel, Mandelbrotset, and Juliaset to the Frame
-	 * Adds listeners to the components in the Details Panel 
-	 */
-	public void init() {
-		this.setSize(3200, 1200);
-		
-		JPanel container = new JPanel();
-		TitledBorder setBorder = BorderFactory.createTitledBorder("Fractals");
-		container.setBorder(setBorder);
-		this.setContentPane(container);
-		container.setLayout(new GridBagLayout());
-		
-		set = new Fractal(1000);
-		panel = new DetailsPanel();	
-		juliaset = new Fractal(100);
-		
-		listener = new FractalListener(panel, set, juliaset);
-		set.addMouseMotionListener(listener);
-		set.addMouseListener(listener);
-		set.addComponentListener(listener);
-		panel.getOkButton().addActionListener(listener);
-		panel.getResetButton().addActionListener(listener);
-		panel.getSaveButton().addActionListener(listener);
-		panel.getComboBox().addActionListener(listener);
-		panel.getSlider().addChangeListener(listener);
-		panel.getConstantJuliaset().addActionListener(listener);
-		
-		cns = new GridBagConstraints();
-        		
-        setGridBagConstraints(0, 0, 0.02, 1);
-        TitledBorder panelBorder = BorderFactory.createTitledBorder("Details");
-        panel.setBorder(panelBorder);
-        container.add(panel, cns);
-        
-        setGridBagConstraints(1, 0, 0.49, 1);
-        container.add(set, cns);
-        set.generateMandelbrotSet();
-        
-        setGridBagConstraints(3, 0, 0.49, 1);
-        container.add(juliaset, cns);
-        
-        this.setLocationRelativeTo(null);
-		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		this.setVisible(true);
-	}
-	
-	/**
-	 * Method to set GridBagConstratints
-	 * @param gridx Column number
-	 * @param gridy Row number
-	 * @param weightx Weight of x
-	 * @param weighty Weight of y
-	 */
-	private void setGridBagConstraints(int gridx, int gridy, double weightx, double weighty) {
-		cns.gridx = gridx;
-        cns.gridy = gridy;
-        cns.weightx = weightx;
-        cns.weighty = weighty;
-        cns.anchor = GridBagConstraints.LAST_LINE_START;
-		cns.fill = GridBagConstraints.BOTH;
-	}
-}
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+import javax.swing.border.*;
+
+/**
+ * Creates the GUI
+ * @author Vedant
+ */
+public class DisplayFrame extends JFrame {
+	private static final long TILE_CACHE_BYTES = 256L << 20;
+	private Fractal set, juliaset;
+	private DetailsPanel panel;
+	private FractalListener listener;
+	private GridBagConstraints cns; 
+	
+	public DisplayFrame(String name) {
+		super(name);
+	}
+	
+	/**
+	 * Adds the Details Panel, Mandelbrotset, and Juliaset to the Frame
+	 * Adds listeners to the components in the Details Panel 
+	 */
+	public void init() {
+		this.setSize(3200, 1200);
+		
+		JPanel container = new JPanel();
+		TitledBorder setBorder = BorderFactory.createTitledBorder("Fractals");
+		container.setBorder(setBorder);
+		this.setContentPane(container);
+		container.setLayout(new GridBagLayout());
+		
+		set = new Fractal(1000);
+		panel = new DetailsPanel();	
+		juliaset = new Fractal(100);
+		set.setProgressive(true);
+		juliaset.setProgressive(true);
+		//Only the Mandelbrot set is revisited, the Juliaset changes with every move of the mouse.
+		//Cached frames are resampled from the tile grid, so the cache is only used when asked for
+		if (Boolean.getBoolean("fractal.tileCache")) {
+			set.setTileCache(new TileCache(TILE_CACHE_BYTES));
+		}
+		
+		listener = new FractalListener(panel, set, juliaset);
+		set.addMouseMotionListener(listener);
+		set.addMouseListener(listener);
+		set.addComponentListener(listener);
+		panel.getOkButton().addActionListener(listener);
+		panel.getResetButton().addActionListener(listener);
+		panel.getSaveButton().addActionListener(listener);
+		panel.getExportButton().addActionListener(listener);
+		panel.getComboBox().addActionListener(listener);
+		panel.getSlider().addChangeListener(listener);
+		panel.getConstantJuliaset().addActionListener(listener);
+		panel.getShowStats().addActionListener(listener);
+		//Stats arrive on the coordinator thread, Swing components are only touched on the event dispatch thread
+		set.addStatsListener(stats -> SwingUtilities.invokeLater(() -> panel.setStats(stats)));
+		
+		cns = new GridBagConstraints();
+        		
+        setGridBagConstraints(0, 0, 0.02, 1);
+        TitledBorder panelBorder = BorderFactory.createTitledBorder("Details");
+        panel.setBorder(panelBorder);
+        container.add(panel, cns);
+        
+        setGridBagConstraints(1, 0, 0.49, 1);
+        container.add(set, cns);
+        set.generateMandelbrotSet();
+        
+        setGridBagConstraints(3, 0, 0.49, 1);
+        container.add(juliaset, cns);
+        
+        //Stops the render threads of both fractals when the window is closed
+        this.addWindowListener(new WindowAdapter() {
+        	@Override
+        	public void windowClosing(WindowEvent e) {
+        		set.shutdown();
+        		juliaset.shutdown();
+        	}
+        });
+        
+        this.setLocationRelativeTo(null);
+		this.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		this.setVisible(true);
+	}
+	
+	/**
+	 * Method to set GridBagConstratints
+	 * @param gridx Column number
+	 * @param gridy Row number
+	 * @param weightx Weight of x
+	 * @param weighty Weight of y
+	 */
+	private void setGridBagConstraints(int gridx, int gridy, double weightx, double weighty) {
+		cns.gridx = gridx;
+        cns.gridy = gridy;
+        cns.weightx = weightx;
+        cns.weighty = weighty;
+        cns.anchor = GridBagConstraints.LAST_LINE_START;
+		cns.fill = GridBagConstraints.BOTH;
+	}
+}
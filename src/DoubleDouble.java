@@ -0,0 +1,45 @@
+import java.math.BigDecimal;
+
+/**
+ * Helpers for double-double arithmetic, where a number is kept as the unevaluated sum of two doubles
+ * hi + lo with |lo| at most half an ulp of hi, giving about 106 bits of precision.
+ * The kernels keep the two parts in local variables, so these only work out the rounding errors
+ */
+public final class DoubleDouble {
+
+	private DoubleDouble() {
+	}
+
+	/**
+	 * Gets the rounding error of adding two doubles
+	 * @param a first number
+	 * @param b second number
+	 * @param sum a + b rounded to a double
+	 * @return exact a + b minus sum
+	 */
+	public static double sumError(double a, double b, double sum) {
+		double v = sum - a;
+		return (a - (sum - v)) + (b - v);
+	}
+
+	/**
+	 * Gets the rounding error of multiplying two doubles
+	 * @param a first number
+	 * @param b second number
+	 * @param product a * b rounded to a double
+	 * @return exact a * b minus product
+	 */
+	public static double productError(double a, double b, double product) {
+		return Math.fma(a, b, -product);
+	}
+
+	/**
+	 * Gets the low part of the double-double nearest to an exact number
+	 * @param exact exact number
+	 * @param hi exact rounded to a double
+	 * @return exact - hi rounded to a double
+	 */
+	public static double low(BigDecimal exact, double hi) {
+		return exact.subtract(new BigDecimal(hi)).doubleValue();
+	}
+}
@@ -0,0 +1,496 @@
+/**
+ * Escape time kernel shared by the Mandelbrot set and the Juliaset.
+ * Only works on primitive doubles and floats so nothing is allocated per pixel or per iteration,
+ * each part builder keeps one instance and reuses it for every pixel it draws.
+ */
+public class EscapeTime {
+	private static final double LOG_TWO = Math.log(2);
+	private static final int LOG_BITS = 10;
+	private static final double[] LOG_TABLE = new double[(1 << LOG_BITS) + 1];
+
+	static {
+		for (int i = 0; i < LOG_TABLE.length; i++) {
+			LOG_TABLE[i] = Math.log(1 + (double) i / (1 << LOG_BITS)) / LOG_TWO;
+		}
+	}
+	private static final double PERIOD_TOLERANCE = 1e-14;
+
+	/**
+	 * Returned instead of an iteration count for points which are known never to escape
+	 */
+	public static final int INSIDE = Integer.MAX_VALUE;
+
+	private int maxIterations;
+	private boolean interiorChecks, periodicityChecks;
+	private double periodTolerance;
+	private double zr, zi;
+	private int iterationsDone;
+
+	/**
+	 * Constructor for EscapeTime which takes in the number of iterations
+	 * @param maxIterations number of iterations before a point is treated as inside the set
+	 */
+	public EscapeTime(int maxIterations) {
+		this(maxIterations, false, false);
+	}
+
+	/**
+	 * Constructor for EscapeTime which can skip iterating points known to be inside the Mandelbrot set
+	 * @param maxIterations number of iterations before a point is treated as inside the set
+	 * @param interiorChecks true to reject points in the main cardioid and period 2 bulb without iterating
+	 * @param periodicityChecks true to stop iterating once the orbit of a point repeats itself
+	 */
+	public EscapeTime(int maxIterations, boolean interiorChecks, boolean periodicityChecks) {
+		this(maxIterations, interiorChecks, periodicityChecks ? PERIOD_TOLERANCE : 0);
+	}
+
+	/**
+	 * Constructor for EscapeTime with the tolerance of the periodicity checks, see periodTolerance
+	 * @param maxIterations number of iterations before a point is treated as inside the set
+	 * @param interiorChecks true to reject points in the main cardioid and period 2 bulb without iterating
+	 * @param periodTolerance how close the orbit has to come back to itself to be a cycle, 0 for no periodicity checks
+	 */
+	public EscapeTime(int maxIterations, boolean interiorChecks, double periodTolerance) {
+		this.maxIterations = maxIterations;
+		this.interiorChecks = interiorChecks;
+		this.periodicityChecks = periodTolerance > 0;
+		this.periodTolerance = periodTolerance;
+	}
+
+	/**
+	 * Gets the tolerance of the periodicity checks for a frame. It stays well below the distance between pixels,
+	 * so an orbit which only comes close to itself near a Misiurewicz point is not taken for a cycle
+	 * @param pixelSize distance between the pixels of the frame
+	 * @return tolerance, at most 1e-14
+	 */
+	public static double periodTolerance(double pixelSize) {
+		return Math.min(PERIOD_TOLERANCE, pixelSize * 1e-3);
+	}
+
+	/**
+	 * Iterates a point of the Mandelbrot set, z starts at c
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @return number of iterations before the point escaped, max iterations if it did not or INSIDE if it never will
+	 */
+	public int mandelbrot(double cr, double ci) {
+		if (interiorChecks && inCardioidOrBulb(cr, ci)) {
+			zr = 0;
+			zi = 0;
+			iterationsDone = 0;
+			return INSIDE;
+		}
+		return mandelbrot(cr, ci, cr, ci, 0);
+	}
+
+	/**
+	 * Carries on iterating a point of the Mandelbrot set from where an earlier iteration stopped
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @param zr real part of z when the earlier iteration stopped
+	 * @param zi imaginary part of z when the earlier iteration stopped
+	 * @param iterations number of iterations already done
+	 * @return number of iterations before the point escaped, max iterations if it did not or INSIDE if it never will
+	 */
+	public int mandelbrot(double cr, double ci, double zr, double zi, int iterations) {
+		return periodicityChecks ? iteratePeriodic(zr, zi, cr, ci, iterations) : iterate(zr, zi, cr, ci, iterations);
+	}
+
+	/**
+	 * Iterates a point of the Mandelbrot set in double-double arithmetic, z starts at c.
+	 * Interior and periodicity checks are not used, they are only as precise as doubles
+	 * @param crHi real part of c
+	 * @param crLo low part of the real part of c
+	 * @param ciHi imaginary part of c
+	 * @param ciLo low part of the imaginary part of c
+	 * @return number of iterations before the point escaped, max iterations if it did not
+	 */
+	public int mandelbrotDoubleDouble(double crHi, double crLo, double ciHi, double ciLo) {
+		return iterateDoubleDouble(crHi, crLo, ciHi, ciLo, crHi, crLo, ciHi, ciLo);
+	}
+
+	/**
+	 * Iterates a point of the Juliaset in double-double arithmetic, c is the constant of the Juliaset
+	 * @param zrHi real part of the point
+	 * @param zrLo low part of the real part of the point
+	 * @param ziHi imaginary part of the point
+	 * @param ziLo low part of the imaginary part of the point
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @return number of iterations before the point escaped
+	 */
+	public int juliaDoubleDouble(double zrHi, double zrLo, double ziHi, double ziLo, double cr, double ci) {
+		return iterateDoubleDouble(zrHi, zrLo, ziHi, ziLo, cr, 0, ci, 0);
+	}
+
+	/**
+	 * Iterates z = z^2 + c like iterate, with z and c kept as double-doubles (hi + lo).
+	 * Only the high parts of z are kept for smooth colouring
+	 * @return number of iterations done
+	 */
+	private int iterateDoubleDouble(double zrHi, double zrLo, double ziHi, double ziLo, double crHi, double crLo, double ciHi, double ciLo) {
+		int iterations = 0;
+
+		while (iterations < maxIterations) {
+			double zr2 = zrHi*zrHi;
+			double zr2Lo = DoubleDouble.productError(zrHi, zrHi, zr2) + 2*zrHi*zrLo;
+			double zi2 = ziHi*ziHi;
+			double zi2Lo = DoubleDouble.productError(ziHi, ziHi, zi2) + 2*ziHi*ziLo;
+			if (zr2 + zi2 >= 4.0) {
+				break;
+			}
+			double zrzi = zrHi*ziHi;
+			double zrziLo = DoubleDouble.productError(zrHi, ziHi, zrzi) + zrHi*ziLo + zrLo*ziHi;
+
+			//zi = 2*zr*zi + ci
+			double sum = 2*zrzi + ciHi;
+			double error = DoubleDouble.sumError(2*zrzi, ciHi, sum) + 2*zrziLo + ciLo;
+			ziHi = sum + error;
+			ziLo = error - (ziHi - sum);
+
+			//zr = zr^2 - zi^2 + cr
+			double difference = zr2 - zi2;
+			error = DoubleDouble.sumError(zr2, -zi2, difference) + zr2Lo - zi2Lo;
+			sum = difference + crHi;
+			error += DoubleDouble.sumError(difference, crHi, sum) + crLo;
+			zrHi = sum + error;
+			zrLo = error - (zrHi - sum);
+			iterations++;
+		}
+
+		this.zr = zrHi;
+		this.zi = ziHi;
+		this.iterationsDone = iterations;
+		return iterations;
+	}
+
+	/**
+	 * Iterates a point of the Mandelbrot set as a difference from a reference orbit (perturbation),
+	 * so points closer together than doubles can tell apart are still iterated in doubles.
+	 * z = Z + dz where Z is the reference orbit, and dz = 2Zdz + dz^2 + dc.
+	 * When |z| gets smaller than |dz|, or the reference orbit runs out, dz would lose precision
+	 * (a glitch), so the iteration is rebased: dz becomes z and the reference orbit starts again from z = 0.
+	 * Periodicity checks are never used, points this close together can follow a repelling cycle
+	 * for longer than the checks allow
+	 * @param orbit reference orbit
+	 * @param dcr real part of the point minus the real part of the reference point
+	 * @param dci imaginary part of the point minus the imaginary part of the reference point
+	 * @return number of iterations before the point escaped, max iterations if it did not
+	 */
+	public int mandelbrot(ReferenceOrbit orbit, double dcr, double dci) {
+		double[] orbitR = orbit.getZr();
+		double[] orbitI = orbit.getZi();
+		int last = orbit.getLength() - 1;
+		//z starts at c, the second point of the reference orbit
+		int m = 1;
+		double dzr = dcr;
+		double dzi = dci;
+		double zr = orbitR[m] + dzr;
+		double zi = orbitI[m] + dzi;
+		int iterations = 0;
+
+		while (iterations < maxIterations) {
+			double modulus = zr*zr + zi*zi;
+			if (modulus >= 4.0) {
+				break;
+			}
+			if (m == last || modulus < dzr*dzr + dzi*dzi) {
+				dzr = zr;
+				dzi = zi;
+				m = 0;
+			}
+			double r = orbitR[m];
+			double i = orbitI[m];
+			double newR = 2*(r*dzr - i*dzi) + dzr*dzr - dzi*dzi + dcr;
+			dzi = 2*(r*dzi + i*dzr + dzr*dzi) + dci;
+			dzr = newR;
+			m++;
+			iterations++;
+			zr = orbitR[m] + dzr;
+			zi = orbitI[m] + dzi;
+		}
+
+		this.zr = zr;
+		this.zi = zi;
+		this.iterationsDone = iterations;
+		return iterations;
+	}
+
+	/**
+	 * Checks if a point is in the main cardioid or the period 2 bulb of the Mandelbrot set,
+	 * which never escape
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @return true if the point is inside either of them
+	 */
+	public static boolean inCardioidOrBulb(double cr, double ci) {
+		double ci2 = ci*ci;
+		double xr = cr - 0.25;
+		double q = xr*xr + ci2;
+		if (q*(q + xr) <= 0.25*ci2) {
+			return true;
+		}
+		double xb = cr + 1;
+		return xb*xb + ci2 <= 0.0625;
+	}
+
+	/**
+	 * Iterates a point of the Juliaset, c is the constant of the Juliaset
+	 * @param zr real part of the point
+	 * @param zi imaginary part of the point
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @return number of iterations before the point escaped
+	 */
+	public int julia(double zr, double zi, double cr, double ci) {
+		return iterate(zr, zi, cr, ci, 0);
+	}
+
+	/**
+	 * Carries on iterating a point of the Juliaset from where an earlier iteration stopped
+	 * @param zr real part of z when the earlier iteration stopped
+	 * @param zi imaginary part of z when the earlier iteration stopped
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @param iterations number of iterations already done
+	 * @return number of iterations before the point escaped
+	 */
+	public int julia(double zr, double zi, double cr, double ci, int iterations) {
+		return iterate(zr, zi, cr, ci, iterations);
+	}
+
+	/**
+	 * Iterates a point of the Mandelbrot set in floats, z starts at c. Floats are only precise enough
+	 * while the points being drawn are far apart, see Fractal.Arithmetic.FLOAT
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @return number of iterations before the point escaped, max iterations if it did not or INSIDE if it never will
+	 */
+	public int mandelbrotFloat(float cr, float ci) {
+		if (interiorChecks && inCardioidOrBulb(cr, ci)) {
+			zr = 0;
+			zi = 0;
+			iterationsDone = 0;
+			return INSIDE;
+		}
+		return mandelbrotFloat(cr, ci, cr, ci, 0);
+	}
+
+	/**
+	 * Carries on iterating a point of the Mandelbrot set in floats from where an earlier iteration stopped
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @param zr real part of z when the earlier iteration stopped
+	 * @param zi imaginary part of z when the earlier iteration stopped
+	 * @param iterations number of iterations already done
+	 * @return number of iterations before the point escaped, max iterations if it did not or INSIDE if it never will
+	 */
+	public int mandelbrotFloat(float cr, float ci, float zr, float zi, int iterations) {
+		return iterateFloat(zr, zi, cr, ci, iterations, periodicityChecks);
+	}
+
+	/**
+	 * Iterates a point of the Juliaset in floats, c is the constant of the Juliaset
+	 * @param zr real part of the point
+	 * @param zi imaginary part of the point
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @return number of iterations before the point escaped
+	 */
+	public int juliaFloat(float zr, float zi, float cr, float ci) {
+		return iterateFloat(zr, zi, cr, ci, 0, false);
+	}
+
+	/**
+	 * Carries on iterating a point of the Juliaset in floats from where an earlier iteration stopped
+	 * @param zr real part of z when the earlier iteration stopped
+	 * @param zi imaginary part of z when the earlier iteration stopped
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @param iterations number of iterations already done
+	 * @return number of iterations before the point escaped
+	 */
+	public int juliaFloat(float zr, float zi, float cr, float ci, int iterations) {
+		return iterateFloat(zr, zi, cr, ci, iterations, false);
+	}
+
+	/**
+	 * Iterates z = z^2 + c in floats until z escapes or max iterations is reached, with the same
+	 * periodicity checks as iteratePeriodic when periodic is true. A tolerance small enough not to join
+	 * neighbouring pixels would be finer than floats can tell apart, so only orbits which come back to
+	 * exactly the saved value are cycles
+	 * @return number of iterations done, INSIDE if a cycle was found
+	 */
+	private int iterateFloat(float zr, float zi, float cr, float ci, int iterations, boolean periodic) {
+		float zr2 = zr*zr;
+		float zi2 = zi*zi;
+		float savedR = zr;
+		float savedI = zi;
+		int start = iterations;
+		int checkpoint = start + 8;
+		boolean cycle = false;
+
+		while (iterations < maxIterations && zr2 + zi2 < 4.0f) {
+			zi = 2*zr*zi + ci;
+			zr = zr2 - zi2 + cr;
+			zr2 = zr*zr;
+			zi2 = zi*zi;
+			iterations++;
+
+			if (periodic && zr == savedR && zi == savedI) {
+				cycle = true;
+				break;
+			}
+			if (iterations == checkpoint) {
+				savedR = zr;
+				savedI = zi;
+				checkpoint = start + 2*(checkpoint - start);
+			}
+		}
+
+		this.zr = zr;
+		this.zi = zi;
+		this.iterationsDone = iterations - start;
+		return cycle ? INSIDE : iterations;
+	}
+
+	/**
+	 * Iterates z = z^2 + c until z escapes or max iterations is reached.
+	 * The final value of z is kept so it can be used for smooth colouring
+	 * @return number of iterations done
+	 */
+	private int iterate(double zr, double zi, double cr, double ci, int iterations) {
+		double zr2 = zr*zr;
+		double zi2 = zi*zi;
+		int start = iterations;
+
+		while (iterations < maxIterations && zr2 + zi2 < 4.0) {
+			zi = 2*zr*zi + ci;
+			zr = zr2 - zi2 + cr;
+			zr2 = zr*zr;
+			zi2 = zi*zi;
+			iterations++;
+		}
+
+		this.zr = zr;
+		this.zi = zi;
+		this.iterationsDone = iterations - start;
+		return iterations;
+	}
+
+	/**
+	 * Iterates z = z^2 + c like iterate, but also compares z with a saved value of the orbit.
+	 * The saved value is moved on after 8, 16, 32... more iterations, so a cycle of any period is found.
+	 * If z comes back to within the period tolerance of it the point is in a cycle and never escapes
+	 * @return number of iterations done, INSIDE if a cycle was found
+	 */
+	private int iteratePeriodic(double zr, double zi, double cr, double ci, int iterations) {
+		double zr2 = zr*zr;
+		double zi2 = zi*zi;
+		double savedR = zr;
+		double savedI = zi;
+		int start = iterations;
+		int checkpoint = start + 8;
+		boolean cycle = false;
+
+		while (iterations < maxIterations && zr2 + zi2 < 4.0) {
+			zi = 2*zr*zi + ci;
+			zr = zr2 - zi2 + cr;
+			zr2 = zr*zr;
+			zi2 = zi*zi;
+			iterations++;
+
+			if (Math.abs(zr - savedR) < periodTolerance && Math.abs(zi - savedI) < periodTolerance) {
+				cycle = true;
+				break;
+			}
+			if (iterations == checkpoint) {
+				savedR = zr;
+				savedI = zi;
+				checkpoint = start + 2*(checkpoint - start);
+			}
+		}
+
+		this.zr = zr;
+		this.zi = zi;
+		this.iterationsDone = iterations - start;
+		return cycle ? INSIDE : iterations;
+	}
+
+	/**
+	 * Getter for the real part of the last value of z
+	 * @return real part of z
+	 */
+	public double getZr() {
+		return zr;
+	}
+
+	/**
+	 * Getter for the imaginary part of the last value of z
+	 * @return imaginary part of z
+	 */
+	public double getZi() {
+		return zi;
+	}
+
+	/**
+	 * Getter for the number of iterations the last call did, not counting those it carried on from.
+	 * Points found INSIDE by the periodicity checks count the iterations up to their cycle, and points
+	 * rejected by the interior checks count none
+	 * @return iterations done
+	 */
+	public int getIterationsDone() {
+		return iterationsDone;
+	}
+
+	/**
+	 * Method to return the modulus square of the last value of z
+	 * @return modulus square
+	 */
+	public double modulusSquared() {
+		return zr*zr + zi*zi;
+	}
+
+	/**
+	 * Gets the smooth (fractional) iteration count of the last escaped point,
+	 * iterations + 1 - log2(ln|z|) worked out with table lookups instead of Math.log
+	 * @param iterations number of iterations returned by the last call
+	 * @return smooth iteration count
+	 */
+	public double smooth(int iterations) {
+		return smooth(iterations, modulusSquared());
+	}
+
+	/**
+	 * Gets the smooth (fractional) iteration count of an escaped point
+	 * @param iterations number of iterations before the point escaped
+	 * @param modulusSquared modulus square of z when the point escaped
+	 * @return smooth iteration count
+	 */
+	public static double smooth(int iterations, double modulusSquared) {
+		//ln|z| = log2(|z|^2) * ln(2) / 2
+		return iterations + 1 - log2(log2(modulusSquared) * (LOG_TWO / 2));
+	}
+
+	/**
+	 * Base 2 logarithm of a positive number, from its exponent and a lookup table of its mantissa
+	 * @param x positive, normal number
+	 * @return log2(x)
+	 */
+	private static double log2(double x) {
+		long bits = Double.doubleToRawLongBits(x);
+		int exponent = (int) ((bits >>> 52) & 0x7FF) - 1023;
+		long mantissa = bits & 0xFFFFFFFFFFFFFL;
+		int index = (int) (mantissa >>> (52 - LOG_BITS));
+		double fraction = (mantissa & ((1L << (52 - LOG_BITS)) - 1)) * (1.0 / (1L << (52 - LOG_BITS)));
+		return exponent + LOG_TABLE[index] + (LOG_TABLE[index + 1] - LOG_TABLE[index]) * fraction;
+	}
+
+	/**
+	 * Getter for max iterations
+	 * @return max iterations
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+}
@@ -1,397 +1,626 @@
-import java.awt.*;
-import java.awt.image.*;
-import java.io.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
-import javax.imageio.ImageIO;
-import javax.swing.*;
-
-/**
- * Class Fractal makes Mandelbrot and Juliaset
- * @author Vedant Chokshi
- */
-public class Fractal extends JPanel {	
-	private double xMin, xMax, yMin, yMax;
-	private int maxIterations, maxThreads, rX, rY, rW, rH;	
-	private BufferedImage fractal;
-	private int[] drawingCoordinates;
-	private boolean running = false;
-
-	/**
-	 * Constructor for Fractal which takes in the number of iterations
-	 * @param iterations number of iterations for the fractal
-	 */
-	public Fractal(int iterations) {
-		this.setBackground(new Color(0, 255, 138));
-		xMin = -2;
-		xMax = 2;
-		yMin = -1.6;
-		yMax = 1.6;
-		maxIterations = iterations;
-		maxThreads = Runtime.getRuntime().availableProcessors();
-		setDrawingCoordinates(0, 0);
-	}
-	
-	/**
-	 * Converts from screen pixel to Complex coordinate
-	 * @param x x point
-	 * @param y y point
-	 * @return new converted Complex number
-	 */
-	public Complex translateCoordinates(double x, double y) {
-		double real = xMin + ((x/this.getWidth())*(xMax - xMin));
-		double imaginary =  -(yMin + ((y/this.getHeight())*(yMax - yMin)));
-		return new Complex(real, imaginary);
-	}
-
-	public void generateMandelbrotSet() {
-		generateMandelbrotSet(this.getWidth(), this.getHeight());
-	}
-	
-	private void generateMandelbrotSet(int x, int y) {
-		if(!running && (x!=0||y!=0)) {
-			SwingWorker<Void, Void> sw = new SwingWorker<Void, Void>() {
-
-				@Override
-				protected Void doInBackground() {
-					running = true;
-					fractal = threadMandelbrot(x, y);
-					running = false;
-					repaint();
-					return null;
-				}				
-			};
-			sw.execute();
-		}
-	}
-	
-	/**
-	 * Threads mandelbrot set
-	 * @param x width
-	 * @param y height
-	 * @return mandelbrot set
-	 */
-	private BufferedImage threadMandelbrot(int x, int y) {
-		BufferedImage mandelbrot = new BufferedImage(x, y, BufferedImage.TYPE_INT_RGB);
-		ConcurrentHashMap<Integer, BufferedImage> hm = new ConcurrentHashMap<>();
-		CountDownLatch c = new CountDownLatch(maxThreads);
-		
-		int y1, split;
-		y1 = 0;
-		split = y/maxThreads;
-		//Loops through splitted regions and makes them
-		for (int i = 0; i < maxThreads - 1; i++) {
-			MandelbrotPartBuilder p = new MandelbrotPartBuilder(y1, y1+split, hm, c);
-			p.execute();
-			y1+=split;
-		}
-		MandelbrotPartBuilder p = new MandelbrotPartBuilder(y1, y, hm, c);
-		p.execute();
-		
-		try {
-			//Awaits for all the threads to complete then draws the image
-			c.await();
-			for (int key : hm.keySet()) {
-				mandelbrot.createGraphics().drawImage(hm.get(key), 0, key, null);
-			}
-		} catch (Exception e) {};		
-		return mandelbrot;
-	}
-	
-	public void generateJuliaset(Complex d) {
-		generateJuliaset(this.getWidth(), this.getHeight(), d);
-	}
-	
-	private void generateJuliaset(int x, int y, Complex d) {
-		if(!running && !(x==0||y==0)) {
-			SwingWorker<Void, Void> sw = new SwingWorker<Void, Void>() {
-
-				@Override
-				protected Void doInBackground() {
-					running = true;
-					fractal = threadJuliaset(x, y, d);
-					running = false;
-					repaint();
-					return null;
-				}
-				
-			};
-			sw.execute();
-		}
-	}
-	
-	/**
-	 * Threads Juliaset
-	 * @param x width
-	 * @param y heigh
-	 * @param d complex number
-	 * @return juliaset
-	 */
-	private BufferedImage threadJuliaset(int x, int y, Complex d) {
-		BufferedImage juliaset = new BufferedImage(x, y, BufferedImage.TYPE_INT_RGB);
-		ConcurrentHashMap<Integer, BufferedImage> hm = new ConcurrentHashMap<>();
-		CountDownLatch c = new CountDownLatch(maxThreads);
-		
-		int y1, split;
-		y1 = 0;
-		split = y/maxThreads;
-		//Loops through splitted regions and makes them
-		for (int i = 0; i < maxThreads - 1; i++) {
-			JuliaPartBuilder p = new JuliaPartBuilder(y1, y1+split, d, hm, c);
-			p.execute();
-			y1+=split;
-		}
-		JuliaPartBuilder p = new JuliaPartBuilder(y1, y, d, hm, c);
-		p.execute();
-		
-		try {
-			//Awaits for all the threads to complete then draws the image
-			c.await();
-			for (int key : hm.keySet()) {
-				juliaset.createGraphics().drawImage(hm.get(key), 0, key, null);
-			}
-		} catch (Exception e) {};		
-		return juliaset;
-	}
-	
-	/**
-	 * Checks if thread is running
-	 * @return
-	 */
-	public boolean checkIfThreading() {
-		return running;
-	}
-	
-	/**
-	 * Saves the fractal to a folder Juliaset
-	 * @param fileName name of fractal
-	 */
-	public void save(String fileName) throws Exception{
-		File juliaset = new File("Juliaset");
-		File outputfile = new File(juliaset, fileName + ".png");
-		ImageIO.write(fractal, "png", outputfile);
-	}
-	
-	/**
-	 * Gets complex coordinates
-	 * @return xMin, xMax, yMin, yMax
-	 */
-	public double[] getComplexCoordinates() {
-		double coordinates[] = {xMin, xMax, yMin, yMax};
-		for(int i=0; i < 4; i++) {
-			coordinates[i] = Math.round(coordinates[i] * 100000d) / 100000d;
-		}
-		return coordinates;
-	}
-	
-	/**
-	 * Getter for xMin
-	 * @return xMin
-	 */
-	public double getxMin() {
-		return xMin;
-	}
-	
-	/**
-	 * Getter for xMax
-	 * @return xMax
-	 */
-	public double getxMax() {
-		return xMax;
-	}
-
-	/**
-	 * Getter for yMin
-	 * @return yMin
-	 */
-	public double getyMin() {
-		return yMin;
-	}
-
-	/**
-	 * Getter for yMax
-	 * @return yMax
-	 */
-	public double getyMax() {
-		return yMax;
-	}
-
-	/**
-	 * Getter for drawing coordinates
-	 * @param x index of the array
-	 * @return drawing point
-	 */
-	public int getDrawingCoordinates(int x) {
-		return drawingCoordinates[x];
-	}
-	
-	/**
-	 * 
-	 * @param x starting point x
-	 * @param y starting point y
-	 * @param width width of rectangle
-	 * @param height heigh of rectangle
-	 */
-	public void setRectangleDimensions(int x, int y, int width, int height) {
-		rX = x;
-		rY = y;
-		rW = width;
-		rH = height;
-	}
-	
-	/**
-	 * Sets complex coordinates
-	 * @param coordinates array of xMin, xMax, yMin, yMax
-	 */
-	public void setComplexCoordinates(double[] coordinates) {
-		xMin = coordinates[0];
-		xMax = coordinates[1];
-		yMin = coordinates[2];
-		yMax = coordinates[3];
-	}
-	
-	/**
-	 * Sets complex coordinates from pixel coordinates
-	 * @param xMin pixel xMin
-	 * @param xMax pixel xMax
-	 * @param yMin pixel yMin
-	 * @param yMax pixel yMax
-	 */
-	public void setCoordinates(double xMin, double xMax, double yMin, double yMax) {
-		Complex tempOne = translateCoordinates(xMin, yMin);
-		Complex tempTwo = translateCoordinates(xMax, yMax);
-		this.xMin = tempOne.getReal();
-		this.xMax = tempTwo.getReal();
-		this.yMin = -tempOne.getImaginary();
-		this.yMax = -tempTwo.getImaginary();
-	}
-	
-	/**
-	 * Sets coordinates from where the fractal is drawn from on the screen
-	 * @param x x point
-	 * @param y y point
-	 */
-	public void setDrawingCoordinates(int x, int y) {
-		drawingCoordinates = new int[] {x, y};
-	}
-	
-	/**
-	 * Sets max iterations of the Fractal
-	 * @param maxIterations number of iterations
-	 */
-	public void setMaxIterations(int maxIterations) {
-		this.maxIterations = maxIterations;
-	}
-
-	/**
-	 * Paints the fractal and rectangle
-	 */
-	public void paintComponent(Graphics g) {
-		super.paintComponent(g);
-		g.drawImage(fractal, drawingCoordinates[0], drawingCoordinates[1], null);
-		if (!(rW==0||rH==0)) {
-			g.setColor(new Color(180,180,220,80));
-			g.fillRect(rX, rY, rW, rH);
-			g.setColor(new Color(0,0,0));
-			g.drawRect(rX, rY, rW, rH);
-		}
-	}
-
-	/**
-	 * Partbuilder for Mandelbrot Set
-	 * @author Vedant Chokshi
-	 */
-	private class MandelbrotPartBuilder extends SwingWorker<Void, Void> {		
-		private int y1, y2;
-		private ConcurrentHashMap<Integer, BufferedImage> hm;
-		private CountDownLatch c;
-		
-		public MandelbrotPartBuilder (int y1, int y2, ConcurrentHashMap<Integer, BufferedImage> hm, CountDownLatch c) {
-			this.y1 = y1;
-			this.y2 = y2;
-			this.hm = hm;
-			this.c = c;
-		}
-		
-		//Generates mandelbrot set
-		@Override
-		protected Void doInBackground() {
-			BufferedImage mandelbrot = new BufferedImage(getWidth(), y2-y1, BufferedImage.TYPE_INT_RGB);
-			
-			for(int x=0; x < getWidth(); x++) {			
-				for(int y=y1; y < y2; y++) {
-					Complex c = translateCoordinates(x, y);
-					Complex z = new Complex(c.getReal(), c.getImaginary());
-					int iterations = 0;
-					
-					while (iterations < maxIterations && z.modulusSquared() < 4.0) {
-						z.square();
-						z.add(c);
-						iterations++;
-					}
-					
-					if (iterations == maxIterations) {
-						mandelbrot.setRGB(x, y-y1, Color.BLACK.getRGB());
-					} else {
-						double nSmooth = (iterations + 1 - Math.log(Math.log(Math.sqrt(z.modulusSquared()))) / Math.log(2) ) / 90f;
-						mandelbrot.setRGB(x, y-y1, Color.HSBtoRGB((float) (nSmooth - 0.6), 1, 1));
-					}
-				}
-			}
-			
-			hm.put(y1, mandelbrot);
-			c.countDown();
-			return null;
-		}
-		
-	}
-	
-	/**
-	 * Partbuilder for Juliaset
-	 * @author Vedant
-	 */
-	private class JuliaPartBuilder extends SwingWorker<Void, Void> {
-		private int y1, y2;
-		private Complex d;
-		private ConcurrentHashMap<Integer, BufferedImage> hm;
-		private CountDownLatch c;
-		
-		public JuliaPartBuilder (int y1, int y2, Complex d, ConcurrentHashMap<Integer, BufferedImage> hm, CountDownLatch c) {
-			this.y1 = y1;
-			this.y2 = y2;
-			this.d = d;
-			this.hm = hm;
-			this.c = c;
-		}
-		
-		//Generates mandelbrot set
-		@Override
-		protected Void doInBackground() {
-			BufferedImage juliaset = new BufferedImage(getWidth(), y2-y1, BufferedImage.TYPE_INT_RGB);
-			
-			for(int x=0; x < getWidth(); x++) {			
-				for(int y=y1; y < y2; y++) {
-					Complex z = translateCoordinates(x, y);
-					int iterations = 0;
-					
-					while (iterations < maxIterations && z.modulusSquared() < 4.0) {
-						z.square();
-						z.add(d);
-						iterations++;
-					}
-					
-					if (iterations == maxIterations) {
-						juliaset.setRGB(x, y-y1, Color.BLACK.getRGB());
-					} else {
-						double nSmooth = (iterations + 1 - Math.log(Math.log(Math.sqrt(z.modulusSquared()))) / Math.log(2) ) / 100f;
-						juliaset.setRGB(x, y-y1, Color.HSBtoRGB((float) (nSmooth - 0.6), 1, 1));
-					}
-				}
-			}
-			
-			hm.put(y1, juliaset);
-			c.countDown();
-			return null;
-		}		
-	}
-}
+import java.awt.*;
+import java.awt.image.*;
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.imageio.ImageIO;
+import javax.swing.*;
+
+/**
+ * Class Fractal makes Mandelbrot and Juliaset.
+ * Frames are drawn by a FractalRenderer, this class keeps the coordinates and shows the frames on screen
+ * @author Vedant Chokshi
+ */
+public class Fractal extends JPanel {	
+	private BigDecimal xMin, xMax, yMin, yMax;
+	private int maxIterations, rX, rY, rW, rH;	
+	private RenderJob.Type type = RenderJob.Type.MANDELBROT;
+	private double cr, ci;
+	private volatile BufferedImage fractal;
+	private int[] drawingCoordinates;
+	private volatile boolean running = false;
+	private final AtomicReference<RenderJob> pending = new AtomicReference<>();
+	private final AtomicBoolean recolourPending = new AtomicBoolean();
+	private final FractalRenderer renderer;
+
+	/**
+	 * Constructor for Fractal which takes in the number of iterations.
+	 * Number of render threads is read from the fractal.threads system property, virtual threads
+	 * are used when fractal.virtualThreads is true
+	 * @param iterations number of iterations for the fractal
+	 */
+	public Fractal(int iterations) {
+		this(iterations, Integer.getInteger("fractal.threads", Runtime.getRuntime().availableProcessors()), Boolean.getBoolean("fractal.virtualThreads"));
+	}
+	
+	/**
+	 * Constructor for Fractal which takes in the number of iterations and how it is threaded
+	 * @param iterations number of iterations for the fractal
+	 * @param parallelism number of render threads
+	 * @param virtualThreads true to draw tiles on virtual threads if the JVM has them
+	 */
+	public Fractal(int iterations, int parallelism, boolean virtualThreads) {
+		renderer = new FractalRenderer("fractal", parallelism, virtualThreads);
+		renderer.setPassListener(image -> {
+			fractal = image;
+			repaint();
+		});
+		this.setBackground(new Color(0, 255, 138));
+		xMin = BigDecimal.valueOf(-2);
+		xMax = BigDecimal.valueOf(2);
+		yMin = BigDecimal.valueOf(-1.6);
+		yMax = BigDecimal.valueOf(1.6);
+		maxIterations = iterations;
+		setDrawingCoordinates(0, 0);
+	}
+	
+	/**
+	 * Converts from screen pixel to Complex coordinate
+	 * @param x x point
+	 * @param y y point
+	 * @return new converted Complex number
+	 */
+	public Complex translateCoordinates(double x, double y) {
+		double real = getxMin() + ((x/this.getWidth())*(getxMax() - getxMin()));
+		double imaginary =  -(getyMin() + ((y/this.getHeight())*(getyMax() - getyMin())));
+		return new Complex(real, imaginary);
+	}
+
+	public void generateMandelbrotSet() {
+		generateMandelbrotSet(this.getWidth(), this.getHeight());
+	}
+	
+	private void generateMandelbrotSet(int x, int y) {
+		if(!(x==0||y==0)) {
+			requestRender(RenderJob.Type.MANDELBROT, x, y, 0, 0);
+		}
+	}
+	
+	public void generateJuliaset(Complex d) {
+		generateJuliaset(this.getWidth(), this.getHeight(), d);
+	}
+	
+	private void generateJuliaset(int x, int y, Complex d) {
+		if(!(x==0||y==0)) {
+			requestRender(RenderJob.Type.JULIA, x, y, d.getReal(), d.getImaginary());
+		}
+	}
+	
+	/**
+	 * Requests a new frame with the current coordinates and iterations. The frame being drawn is
+	 * cancelled, and a frame which was requested but not started yet is replaced by this one
+	 * @param type which fractal to draw
+	 * @param x width
+	 * @param y height
+	 * @param cr real part of c of the Juliaset
+	 * @param ci imaginary part of c of the Juliaset
+	 */
+	private void requestRender(RenderJob.Type type, int x, int y, double cr, double ci) {
+		this.type = type;
+		this.cr = cr;
+		this.ci = ci;
+		RenderJob job = renderer.newJob(type, x, y, xMin, xMax, yMin, yMax, maxIterations, cr, ci);
+		if (pending.getAndSet(job) == null) {
+			getRenderExecutor().submit(this::drawPendingRenders);
+		}
+	}
+	
+	/**
+	 * Draws the latest requested frame until no more frames are requested, runs on the coordinator thread
+	 */
+	private void drawPendingRenders() {
+		RenderJob job;
+		while ((job = pending.getAndSet(null)) != null) {
+			running = true;
+			try {
+				BufferedImage image = renderer.render(job);
+				if (image != null) {
+					fractal = image;
+					repaint();
+				}
+			} finally {
+				running = false;
+			}
+		}
+	}
+	
+	/**
+	 * Cancels the frame being drawn and any frame waiting to be drawn
+	 */
+	public void cancel() {
+		pending.set(null);
+		renderer.cancel();
+	}
+	
+	/**
+	 * Colours the last frame again with the current palette, colour offset and colour density,
+	 * without iterating it. Runs on the coordinator thread after any frame being drawn, several changes
+	 * made before it runs only colour the frame once
+	 */
+	private void recolour() {
+		if (!recolourPending.compareAndSet(false, true)) {
+			return;
+		}
+		getRenderExecutor().submit(() -> {
+			recolourPending.set(false);
+			BufferedImage image = renderer.recolour();
+			if (image != null) {
+				fractal = image;
+				repaint();
+			}
+		});
+	}
+	
+	/**
+	 * Checks if a frame is being drawn or waiting to be drawn
+	 * @return true if a frame is not finished yet
+	 */
+	public boolean checkIfThreading() {
+		return running || pending.get() != null;
+	}
+	
+	/**
+	 * Gets the renderer which draws the frames of this fractal
+	 * @return renderer
+	 */
+	public FractalRenderer getRenderer() {
+		return renderer;
+	}
+	
+	/**
+	 * Gets the thread pool which renders this fractal
+	 * @return render executor
+	 */
+	public RenderExecutor getRenderExecutor() {
+		return renderer.getRenderExecutor();
+	}
+	
+	/**
+	 * Stops the render threads of this fractal, it can not be generated afterwards
+	 */
+	public void shutdown() {
+		renderer.shutdown();
+	}
+	
+	/**
+	 * Saves the fractal to a folder Juliaset
+	 * @param fileName name of fractal
+	 */
+	public void save(String fileName) throws Exception{
+		File juliaset = new File("Juliaset");
+		File outputfile = new File(juliaset, fileName + ".png");
+		ImageIO.write(fractal, "png", outputfile);
+	}
+	
+	/**
+	 * Saves the fractal last generated at any size, with the current coordinates and iterations.
+	 * The image is drawn in bands of rows which are written to the file as soon as they are finished,
+	 * so it never has to fit in memory. It is drawn on render threads of its own with the same settings,
+	 * so frames on screen carry on being drawn
+	 * @param file PNG file to write
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 * @return true if the image was saved, false if it was cancelled, in which case the unfinished file is deleted
+	 */
+	public boolean export(File file, int width, int height) throws IOException {
+		RenderExecutor executor = getRenderExecutor();
+		FractalRenderer export = new FractalRenderer("export", executor.getParallelism(), executor.isVirtual());
+		export.copySettings(renderer);
+		boolean finished;
+		try (PngWriter png = new PngWriter(new FileOutputStream(file), width, height)) {
+			finished = export.renderBands(type, width, height, xMin, xMax, yMin, yMax, maxIterations, cr, ci, (y, band) -> png.writeRows(band));
+			if (!finished) {
+				png.abort();
+			}
+		} finally {
+			export.shutdown();
+		}
+		if (!finished) {
+			Files.deleteIfExists(file.toPath());
+		}
+		return finished;
+	}
+	
+	/**
+	 * Gets complex coordinates
+	 * @return xMin, xMax, yMin, yMax
+	 */
+	public double[] getComplexCoordinates() {
+		double coordinates[] = {getxMin(), getxMax(), getyMin(), getyMax()};
+		for(int i=0; i < 4; i++) {
+			coordinates[i] = Math.round(coordinates[i] * 100000d) / 100000d;
+		}
+		return coordinates;
+	}
+	
+	/**
+	 * Gets the exact complex coordinates, which keep their precision however far the fractal is zoomed in
+	 * @return xMin, xMax, yMin, yMax
+	 */
+	public BigDecimal[] getExactComplexCoordinates() {
+		return new BigDecimal[] {xMin, xMax, yMin, yMax};
+	}
+	
+	/**
+	 * Getter for xMin
+	 * @return xMin
+	 */
+	public double getxMin() {
+		return xMin.doubleValue();
+	}
+	
+	/**
+	 * Getter for xMax
+	 * @return xMax
+	 */
+	public double getxMax() {
+		return xMax.doubleValue();
+	}
+
+	/**
+	 * Getter for yMin
+	 * @return yMin
+	 */
+	public double getyMin() {
+		return yMin.doubleValue();
+	}
+
+	/**
+	 * Getter for yMax
+	 * @return yMax
+	 */
+	public double getyMax() {
+		return yMax.doubleValue();
+	}
+
+	/**
+	 * Getter for drawing coordinates
+	 * @param x index of the array
+	 * @return drawing point
+	 */
+	public int getDrawingCoordinates(int x) {
+		return drawingCoordinates[x];
+	}
+	
+	/**
+	 * 
+	 * @param x starting point x
+	 * @param y starting point y
+	 * @param width width of rectangle
+	 * @param height heigh of rectangle
+	 */
+	public void setRectangleDimensions(int x, int y, int width, int height) {
+		rX = x;
+		rY = y;
+		rW = width;
+		rH = height;
+	}
+	
+	/**
+	 * Sets complex coordinates
+	 * @param coordinates array of xMin, xMax, yMin, yMax
+	 */
+	public void setComplexCoordinates(double[] coordinates) {
+		xMin = new BigDecimal(coordinates[0]);
+		xMax = new BigDecimal(coordinates[1]);
+		yMin = new BigDecimal(coordinates[2]);
+		yMax = new BigDecimal(coordinates[3]);
+	}
+	
+	/**
+	 * Sets exact complex coordinates
+	 * @param coordinates array of xMin, xMax, yMin, yMax
+	 */
+	public void setExactComplexCoordinates(BigDecimal[] coordinates) {
+		xMin = coordinates[0];
+		xMax = coordinates[1];
+		yMin = coordinates[2];
+		yMax = coordinates[3];
+	}
+	
+	/**
+	 * Sets complex coordinates from pixel coordinates, worked out exactly so zooming can go on
+	 * past the precision of doubles
+	 * @param xMin pixel xMin
+	 * @param xMax pixel xMax
+	 * @param yMin pixel yMin
+	 * @param yMax pixel yMax
+	 */
+	public void setCoordinates(double xMin, double xMax, double yMin, double yMax) {
+		MathContext mc = viewportPrecision();
+		BigDecimal newXMin = between(this.xMin, this.xMax, xMin / getWidth(), mc);
+		BigDecimal newXMax = between(this.xMin, this.xMax, xMax / getWidth(), mc);
+		BigDecimal newYMin = between(this.yMin, this.yMax, yMin / getHeight(), mc);
+		BigDecimal newYMax = between(this.yMin, this.yMax, yMax / getHeight(), mc);
+		this.xMin = newXMin;
+		this.xMax = newXMax;
+		this.yMin = newYMin;
+		this.yMax = newYMax;
+	}
+	
+	/**
+	 * Moves the complex coordinates by a whole number of pixels, worked out exactly
+	 * @param dx pixels to move right
+	 * @param dy pixels to move down
+	 */
+	public void pan(int dx, int dy) {
+		MathContext mc = viewportPrecision();
+		BigDecimal x = between(BigDecimal.ZERO, xMax.subtract(xMin), (double) dx / getWidth(), mc);
+		BigDecimal y = between(BigDecimal.ZERO, yMax.subtract(yMin), (double) dy / getHeight(), mc);
+		xMin = xMin.add(x);
+		xMax = xMax.add(x);
+		yMin = yMin.add(y);
+		yMax = yMax.add(y);
+	}
+	
+	/**
+	 * Works out a point part of the way from one number to another
+	 * @param from first number
+	 * @param to second number
+	 * @param fraction how far along, 0 for from and 1 for to
+	 * @param mc precision of the distance moved
+	 * @return from + (to - from) * fraction
+	 */
+	private static BigDecimal between(BigDecimal from, BigDecimal to, double fraction, MathContext mc) {
+		return from.add(to.subtract(from).multiply(new BigDecimal(fraction), mc));
+	}
+	
+	/**
+	 * Gets the precision coordinates are worked out with, enough for a frame zoomed in as far
+	 * as a single pixel of the current one
+	 * @return precision
+	 */
+	private MathContext viewportPrecision() {
+		int width = Math.max(1, getWidth());
+		double pixelSize = Math.abs(xMax.subtract(xMin).doubleValue()) / width;
+		return new MathContext(ReferenceOrbit.precisionFor(pixelSize / width));
+	}
+	
+	/**
+	 * Sets coordinates from where the fractal is drawn from on the screen
+	 * @param x x point
+	 * @param y y point
+	 */
+	public void setDrawingCoordinates(int x, int y) {
+		drawingCoordinates = new int[] {x, y};
+	}
+	
+	/**
+	 * Sets the size of the square tiles the fractal is split into when threading
+	 * @param tileSize width and height of a tile in pixels
+	 */
+	public void setTileSize(int tileSize) {
+		renderer.setTileSize(tileSize);
+	}
+	
+	/**
+	 * Getter for tile size
+	 * @return tile size
+	 */
+	public int getTileSize() {
+		return renderer.getTileSize();
+	}
+	
+	/**
+	 * Sets if points in the main cardioid and period 2 bulb of the Mandelbrot set are
+	 * filled in without iterating them
+	 * @param interiorChecks true to skip them, false to iterate every point
+	 */
+	public void setInteriorChecks(boolean interiorChecks) {
+		renderer.setInteriorChecks(interiorChecks);
+	}
+	
+	/**
+	 * Sets if points of the Mandelbrot set stop iterating once their orbit repeats itself
+	 * @param periodicityChecks true to look for repeating orbits, false to iterate up to max iterations
+	 */
+	public void setPeriodicityChecks(boolean periodicityChecks) {
+		renderer.setPeriodicityChecks(periodicityChecks);
+	}
+	
+	/**
+	 * Sets if rows of double precision frames are iterated a SIMD register of pixels at a time with the
+	 * Vector API, used from the next time the fractal is generated. Ignored when jdk.incubator.vector is not
+	 * available, which needs the JVM to be run with --add-modules jdk.incubator.vector.
+	 * Starts off as the fractal.vector system property, off by default as the vector kernel is very slow
+	 * until the JIT has compiled it
+	 * @param vectorised true to use the vector kernel where it is available, false to iterate each pixel on its own
+	 */
+	public void setVectorised(boolean vectorised) {
+		renderer.setVectorised(vectorised);
+	}
+	
+	/**
+	 * Checks if rows are iterated with the vector kernel
+	 * @return true if the vector kernel is used
+	 */
+	public boolean isVectorised() {
+		return renderer.isVectorised();
+	}
+	
+	/**
+	 * Sets the tile cache frames are put together from, it can be shared with other fractals.
+	 * Frames are then drawn on the quadtree grid of the cache instead of on their own pixels
+	 * @param tileCache tile cache, null to draw every frame from scratch
+	 */
+	public void setTileCache(TileCache tileCache) {
+		renderer.setTileCache(tileCache);
+	}
+	
+	/**
+	 * Getter for tile cache
+	 * @return tile cache, null if there is none
+	 */
+	public TileCache getTileCache() {
+		return renderer.getTileCache();
+	}
+	
+	/**
+	 * Sets how the pixels of each tile are worked out, used from the next time the fractal is generated
+	 * @param renderMode render mode
+	 */
+	public void setRenderMode(FractalRenderer.RenderMode renderMode) {
+		renderer.setRenderMode(renderMode);
+	}
+	
+	/**
+	 * Getter for render mode
+	 * @return render mode
+	 */
+	public FractalRenderer.RenderMode getRenderMode() {
+		return renderer.getRenderMode();
+	}
+	
+	/**
+	 * Sets if the fractal is drawn coarse to fine, showing a low resolution image first which is
+	 * refined at 1/4, 1/2 and full resolution. Render mode is not used while drawing progressively
+	 * @param progressive true to draw progressively
+	 */
+	public void setProgressive(boolean progressive) {
+		renderer.setProgressive(progressive);
+	}
+	
+	/**
+	 * Checks if the fractal is drawn progressively
+	 * @return true if progressive
+	 */
+	public boolean isProgressive() {
+		return renderer.isProgressive();
+	}
+	
+	/**
+	 * Gets the number of pixels which were iterated in the last frame
+	 * @return computed pixels
+	 */
+	public long getComputedPixels() {
+		return renderer.getComputedPixels();
+	}
+	
+	/**
+	 * Gets the number of pixels which were filled in without iterating them in the last frame
+	 * @return filled pixels
+	 */
+	public long getFilledPixels() {
+		return renderer.getFilledPixels();
+	}
+	
+	/**
+	 * Adds a listener which is told the measurements of every frame once it is finished or cancelled:
+	 * frame and tile times, iterations, pixels a second, the share of the frame inside the set and how busy
+	 * the render threads were. Listeners are called on the coordinator thread, not the event dispatch thread
+	 * @param listener listener
+	 */
+	public void addStatsListener(Consumer<RenderStats> listener) {
+		renderer.addStatsListener(listener);
+	}
+	
+	/**
+	 * Removes a stats listener
+	 * @param listener listener added by addStatsListener
+	 */
+	public void removeStatsListener(Consumer<RenderStats> listener) {
+		renderer.removeStatsListener(listener);
+	}
+	
+	/**
+	 * Gets the measurements of the last frame, finished or cancelled
+	 * @return stats, null if no frame was drawn yet
+	 */
+	public RenderStats getLastStats() {
+		return renderer.getLastStats();
+	}
+	
+	/**
+	 * Gets the state of every pixel of the last frame which was finished
+	 * @return iteration buffer, null if no frame was finished yet
+	 */
+	public IterationBuffer getIterationBuffer() {
+		return renderer.getIterationBuffer();
+	}
+	
+	/**
+	 * Gets the arithmetic the last finished frame was iterated in
+	 * @return arithmetic
+	 */
+	public FractalRenderer.Arithmetic getArithmetic() {
+		return renderer.getArithmetic();
+	}
+	
+	/**
+	 * Sets the palette escaped points are coloured with, the last frame is coloured again straight away
+	 * @param palette palette
+	 */
+	public void setPalette(Palette palette) {
+		renderer.setPalette(palette);
+		recolour();
+	}
+	
+	/**
+	 * Getter for palette
+	 * @return palette
+	 */
+	public Palette getPalette() {
+		return renderer.getPalette();
+	}
+	
+	/**
+	 * Sets the position in the palette, as a fraction of a cycle, which is subtracted from every point.
+	 * The last frame is coloured again straight away
+	 * @param colourOffset colour offset
+	 */
+	public void setColourOffset(double colourOffset) {
+		renderer.setColourOffset(colourOffset);
+		recolour();
+	}
+	
+	/**
+	 * Getter for colour offset
+	 * @return colour offset
+	 */
+	public double getColourOffset() {
+		return renderer.getColourOffset();
+	}
+	
+	/**
+	 * Sets the number of iterations for one cycle of the palette, the last frame is coloured again straight away
+	 * @param colourDensity colour density, 0 for the default of the fractal (90 for the Mandelbrot set, 100 for the Juliaset)
+	 */
+	public void setColourDensity(double colourDensity) {
+		renderer.setColourDensity(colourDensity);
+		recolour();
+	}
+	
+	/**
+	 * Getter for colour density
+	 * @return colour density, 0 if the default of the fractal is used
+	 */
+	public double getColourDensity() {
+		return renderer.getColourDensity();
+	}
+	
+	/**
+	 * Sets max iterations of the Fractal
+	 * @param maxIterations number of iterations
+	 */
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Paints the fractal and rectangle
+	 */
+	public void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		g.drawImage(fractal, drawingCoordinates[0], drawingCoordinates[1], null);
+		if (!(rW==0||rH==0)) {
+			g.setColor(new Color(180,180,220,80));
+			g.fillRect(rX, rY, rW, rH);
+			g.setColor(new Color(0,0,0));
+			g.drawRect(rX, rY, rW, rH);
+		}
+	}
+}
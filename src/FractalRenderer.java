@@ -0,0 +1,1819 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Draws frames of the Mandelbrot set and Juliaset into images, without any user interface so it
+ * also runs on a headless JVM. Frames are drawn on the render threads of a RenderExecutor, making a new
+ * frame with newJob cancels the frame being drawn. The state of the last frame is kept, so a frame
+ * which overlaps it only draws its new pixels and the last frame can be coloured again without iterating it
+ */
+public class FractalRenderer {
+	private static final int BLACK = 0x000000;
+	private static final double MANDELBROT_DENSITY = 90, JULIA_DENSITY = 100, COLOUR_OFFSET = 0.6;
+	private static final int MIN_SUBDIVISION = 6, PROGRESSIVE_STEP = 8;
+	private static final double DOUBLE_LIMIT = 1e-12, DOUBLE_DOUBLE_LIMIT = 1e-27;
+	//Rounding error of a float relative to its value, which can grow by about this much again every iteration
+	private static final double FLOAT_EPSILON = 0x1p-24;
+	private static final int FLOAT_MAX_ITERATIONS = 1 << 24;
+	private static final int BAND_PIXELS = 1 << 21;
+	
+	/**
+	 * Arithmetic a frame is iterated in, chosen from how close together its pixels are
+	 */
+	public enum Arithmetic {
+		/**
+		 * Floats, while pixels are more than 4 * 2^-24 * max iterations of the coordinates apart and the vector kernel
+		 * is used, where floats fit twice as many pixels in each SIMD register
+		 */
+		FLOAT,
+		/** Doubles, while pixels are more than 1e-12 of the coordinates apart */
+		DOUBLE,
+		/** Double-doubles of about 106 bits, while pixels are more than 1e-27 of the coordinates apart */
+		DOUBLE_DOUBLE,
+		/** Differences in doubles from a reference orbit in arbitrary precision, only for the Mandelbrot set */
+		PERTURBATION
+	}
+	
+	/**
+	 * How the pixels of a tile are worked out
+	 */
+	public enum RenderMode {
+		/** Every pixel is iterated */
+		BRUTE_FORCE,
+		/** Rectangles with the set all round their border are filled without iterating the inside */
+		MARIANI_SILVER
+	}
+	
+	/**
+	 * Takes the bands of a frame drawn by renderBands
+	 */
+	public interface BandConsumer {
+		
+		/**
+		 * Takes a band once it is drawn
+		 * @param y row of the frame the band starts at
+		 * @param band image of the band, as wide as the frame
+		 */
+		void accept(int y, BufferedImage band) throws IOException;
+	}
+	
+	private final AtomicLong generation = new AtomicLong();
+	private RenderJob lastJob;
+	private List<Object> lastSettings;
+	private ReferenceOrbit lastOrbit;
+	private volatile Arithmetic arithmetic = Arithmetic.DOUBLE;
+	private volatile IterationBuffer lastBuffer;
+	private IterationBuffer spareBuffer;
+	private final RenderExecutor executor;
+	private int tileSize = 64;
+	private boolean interiorChecks = true, periodicityChecks = true;
+	private boolean vectorised = Boolean.getBoolean("fractal.vector");
+	private volatile Palette palette = Palette.HUE;
+	private volatile double colourOffset = COLOUR_OFFSET, colourDensity = 0;
+	private RenderMode renderMode = RenderMode.BRUTE_FORCE;
+	private TileCache tileCache;
+	private boolean progressive = false;
+	private Consumer<BufferedImage> passListener;
+	private final LongAdder computedPixels = new LongAdder(), filledPixels = new LongAdder();
+	private final LongAdder iterationCount = new LongAdder(), tileCount = new LongAdder(), tileNanos = new LongAdder();
+	private final LongAccumulator longestTile = new LongAccumulator(Math::max, 0);
+	private final List<Consumer<RenderStats>> statsListeners = new CopyOnWriteArrayList<>();
+	private volatile RenderStats lastStats;
+
+	/**
+	 * Constructor for FractalRenderer
+	 * @param name prefix of the names of the render threads
+	 * @param parallelism number of render threads
+	 * @param virtualThreads true to draw tiles on virtual threads if the JVM has them
+	 */
+	public FractalRenderer(String name, int parallelism, boolean virtualThreads) {
+		executor = new RenderExecutor(name, parallelism, virtualThreads);
+	}
+	
+	/**
+	 * Makes a frame to draw. The frame being drawn and any frame made before this one are cancelled
+	 * @param type which fractal to draw
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 * @param xMin real part of the left edge
+	 * @param xMax real part of the right edge
+	 * @param yMin negated imaginary part of the top edge
+	 * @param yMax negated imaginary part of the bottom edge
+	 * @param maxIterations number of iterations
+	 * @param cr real part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param ci imaginary part of c of the Juliaset, not used for the Mandelbrot set
+	 * @return frame, to pass to render
+	 */
+	public RenderJob newJob(RenderJob.Type type, int width, int height, BigDecimal xMin, BigDecimal xMax, BigDecimal yMin, BigDecimal yMax,
+			int maxIterations, double cr, double ci) {
+		return new RenderJob(type, width, height, xMin, xMax, yMin, yMax, maxIterations, cr, ci, generation.incrementAndGet());
+	}
+	
+	/**
+	 * Draws a frame and waits until it is finished. Frames should be drawn one at a time,
+	 * each renderer only keeps the state of its last frame
+	 * @param job frame to draw, made by newJob
+	 * @return image of the frame, or null if the frame was cancelled before it was finished
+	 */
+	public BufferedImage render(RenderJob job) {
+		BufferedImage image = new BufferedImage(job.getWidth(), job.getHeight(), BufferedImage.TYPE_INT_RGB);
+		return draw(job, image) ? image : null;
+	}
+	
+	/**
+	 * Draws a frame without colouring it and waits until it is finished. Only the state of its pixels
+	 * is kept, for resample or recolour
+	 * @param job frame to draw, made by newJob
+	 * @return true if the frame was finished, false if it was cancelled
+	 */
+	public boolean renderUncoloured(RenderJob job) {
+		return draw(job, null);
+	}
+	
+	/**
+	 * Draws a frame, or only works out the state of its pixels, and tells the stats listeners
+	 * and the flight recorder how it went
+	 * @param job frame to draw
+	 * @param image image to draw, null to leave the frame uncoloured
+	 * @return true if the frame was finished, false if it was cancelled
+	 */
+	private boolean draw(RenderJob job, BufferedImage image) {
+		FrameEvent event = new FrameEvent();
+		event.begin();
+		computedPixels.reset();
+		filledPixels.reset();
+		iterationCount.reset();
+		tileCount.reset();
+		tileNanos.reset();
+		longestTile.reset();
+		long start = System.nanoTime();
+		boolean finished = job.getType() == RenderJob.Type.MANDELBROT ? threadMandelbrot(job, image) : threadJuliaset(job, image);
+		long time = System.nanoTime() - start;
+		event.end();
+		
+		RenderStats stats = new RenderStats(job, arithmeticFor(job), renderMode, executor.getParallelism(), finished, time,
+				tileCount.sum(), tileNanos.sum(), longestTile.get(), computedPixels.sum(), filledPixels.sum(), iterationCount.sum(),
+				finished ? lastBuffer.countNotEscaped() : 0);
+		lastStats = stats;
+		if (event.shouldCommit()) {
+			event.set(stats);
+			event.commit();
+		}
+		for (Consumer<RenderStats> listener : statsListeners) {
+			listener.accept(stats);
+		}
+		return finished;
+	}
+	
+	/**
+	 * Draws a frame in bands of rows, one after another, so only one band of the image and its state
+	 * is in memory at a time however large the frame is. Each band is drawn as a frame of its own, cancelling
+	 * the frame being drawn, and bands are about 2 million pixels unless the frame is narrower than that
+	 * @param type which fractal to draw
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 * @param xMin real part of the left edge
+	 * @param xMax real part of the right edge
+	 * @param yMin negated imaginary part of the top edge
+	 * @param yMax negated imaginary part of the bottom edge
+	 * @param maxIterations number of iterations
+	 * @param cr real part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param ci imaginary part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param bands given each band from top to bottom once it is drawn, with the row of the frame it starts at
+	 * @return true if every band was drawn, false if the frame was cancelled
+	 */
+	public boolean renderBands(RenderJob.Type type, int width, int height, BigDecimal xMin, BigDecimal xMax, BigDecimal yMin, BigDecimal yMax,
+			int maxIterations, double cr, double ci, BandConsumer bands) throws IOException {
+		int bandHeight = Math.max(1, Math.min(height, BAND_PIXELS / width));
+		if (bandHeight > tileSize) {
+			bandHeight -= bandHeight % tileSize;
+		}
+		for (int y = 0; y < height; y += bandHeight) {
+			int y2 = Math.min(height, y + bandHeight);
+			BufferedImage band = render(newJob(type, width, y2 - y, xMin, xMax, edge(yMin, yMax, y, height), edge(yMin, yMax, y2, height),
+					maxIterations, cr, ci));
+			if (band == null) {
+				return false;
+			}
+			bands.accept(y, band);
+		}
+		return true;
+	}
+	
+	/**
+	 * Draws the tiles of an iteration file which are not finished yet, one after another, and copies the smooth
+	 * iteration counts of each from its buffer into the mapping of the file. Each tile is drawn as a frame of its own,
+	 * cancelling the frame being drawn, into the same buffer, so only one tile is on the heap at a time. A tile is marked finished once
+	 * it is written, so a render which was stopped carries on where it stopped when the file is opened again
+	 * @param file file to draw
+	 * @return true if every tile is finished, false if the frame was cancelled
+	 */
+	public boolean renderToFile(IterationFile file) {
+		for (int tile = 0; tile < file.getTileCount(); tile++) {
+			if (file.isDone(tile)) {
+				continue;
+			}
+			Rectangle bounds = file.getTileBounds(tile);
+			BigDecimal[] edges = file.getTileCoordinates(tile);
+			if (!draw(newJob(file.getType(), bounds.width, bounds.height, edges[0], edges[1], edges[2], edges[3],
+					file.getMaxIterations(), file.getCr(), file.getCi()), null)) {
+				return false;
+			}
+			//Copied row by row from the heap buffer of the tile into the mapping
+			IterationBuffer buffer = lastBuffer;
+			FloatBuffer counts = file.getTile(tile);
+			for (int y = 0; y < bounds.height; y++) {
+				counts.position(y * file.getTileSize());
+				buffer.getSmooth(y * bounds.width, bounds.width, counts);
+			}
+			file.setDone(tile);
+			//The tiles do not overlap, so the next tile is drawn from scratch over the buffer of this one
+			clearLastFrame();
+			spareBuffer = buffer;
+		}
+		return true;
+	}
+	
+	/**
+	 * Draws a tile as a frame of its own, cancelling the frame being drawn, and only works out the state of its pixels
+	 * @param type which fractal to draw
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 * @param xMin real part of the left edge
+	 * @param xMax real part of the right edge
+	 * @param yMin negated imaginary part of the top edge
+	 * @param yMax negated imaginary part of the bottom edge
+	 * @param maxIterations number of iterations
+	 * @param cr real part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param ci imaginary part of c of the Juliaset, not used for the Mandelbrot set
+	 * @return smooth iteration counts of the tile, row by row, or null if it was cancelled
+	 */
+	public float[] renderTile(RenderJob.Type type, int width, int height, BigDecimal xMin, BigDecimal xMax, BigDecimal yMin, BigDecimal yMax,
+			int maxIterations, double cr, double ci) {
+		if (!draw(newJob(type, width, height, xMin, xMax, yMin, yMax, maxIterations, cr, ci), null)) {
+			return null;
+		}
+		float[] counts = new float[width * height];
+		lastBuffer.getSmooth(0, counts.length, FloatBuffer.wrap(counts));
+		return counts;
+	}
+	
+	/**
+	 * Colours an iteration file with the current palette, colour offset and colour density and writes it
+	 * to a PNG a band of rows at a time. The smooth iteration counts are read straight from the mapping of
+	 * the file and nothing is iterated, the rows of each band are coloured on the render threads
+	 * @param file file to colour
+	 * @param png writer of an image the size of the file
+	 */
+	public void exportFile(IterationFile file, PngWriter png) throws IOException {
+		Palette colours = palette;
+		double offset = colourOffset;
+		double density = colourDensity(file.getType());
+		int width = file.getWidth();
+		int height = file.getHeight();
+		int bandHeight = Math.max(1, Math.min(height, BAND_PIXELS / width));
+		BufferedImage band = null;
+		for (int y = 0; y < height; y += bandHeight) {
+			int rows = Math.min(bandHeight, height - y);
+			if (band == null || band.getHeight() != rows) {
+				band = new BufferedImage(width, rows, BufferedImage.TYPE_INT_RGB);
+			}
+			int[] pixels = getPixels(band);
+			int top = y;
+			executor.invokeTiles(rows, row -> {
+				float[] counts = new float[width];
+				file.getRow(top + row, counts);
+				for (int x = 0; x < width; x++) {
+					float smooth = counts[x];
+					pixels[row * width + x] = smooth == IterationBuffer.NOT_ESCAPED ? BLACK : colours.colour(smooth, density, offset);
+				}
+			});
+			png.writeRows(band);
+		}
+	}
+	
+	/**
+	 * Works out the edge of a part of a frame exactly, so the parts line up with the pixels of the whole frame
+	 * @param min edge of the frame at pixel 0
+	 * @param max edge of the frame at the last pixel
+	 * @param pixel pixel the part starts or ends at
+	 * @param pixels pixels across the frame
+	 * @return edge
+	 */
+	static BigDecimal edge(BigDecimal min, BigDecimal max, int pixel, int pixels) {
+		return pixel == pixels ? max : min.add(max.subtract(min).multiply(new BigDecimal((double) pixel / pixels)));
+	}
+	
+	/**
+	 * Draws the mandelbrot set. Frames zoomed in too far for doubles are drawn in double-doubles, and
+	 * further in by perturbation from a reference orbit, see DeepMandelbrotPartBuilder
+	 * @param job frame to draw
+	 * @param mandelbrot image to draw, null to leave the frame uncoloured
+	 * @return true if the frame was finished, false if a newer frame was requested before it was finished
+	 */
+	private boolean threadMandelbrot(RenderJob job, BufferedImage mandelbrot) {
+		PartBuilderFactory builders = MandelbrotPartBuilder::new;
+		Arithmetic tier = arithmeticFor(job);
+		if (tier == Arithmetic.FLOAT) {
+			builders = FloatMandelbrotPartBuilder::new;
+		} else if (tier == Arithmetic.DOUBLE_DOUBLE) {
+			builders = DoubleDoubleMandelbrotPartBuilder::new;
+		} else if (tier == Arithmetic.PERTURBATION) {
+			ReferenceOrbit orbit = referenceOrbit(job);
+			if (orbit == null) {
+				return false;
+			}
+			builders = (tileJob, buffer, step, previousStep) -> new DeepMandelbrotPartBuilder(tileJob, buffer, step, previousStep, orbit);
+		}
+		return render(job, mandelbrot, builders);
+	}
+	
+	/**
+	 * Chooses the arithmetic a frame is iterated in from the distance between its pixels,
+	 * relative to the size of its coordinates. The Juliaset has no reference orbit, so it stays
+	 * in double-doubles however far it is zoomed in. Floats are only worth it with the vector kernel,
+	 * and are not used past the number of iterations a float can count exactly. Their rounding errors add up
+	 * with every iteration, so the more iterations the further apart pixels have to be: at 4 * 2^-24 per iteration
+	 * they change fewer pixels than moving the frame a tenth of a pixel would
+	 * @param job frame to check
+	 * @return arithmetic
+	 */
+	public Arithmetic arithmeticFor(RenderJob job) {
+		double magnitude = Math.max(Math.max(Math.abs(job.getxMin()), Math.abs(job.getxMax())),
+				Math.max(Math.abs(job.getyMin()), Math.abs(job.getyMax())));
+		double pixelSize = job.getPixelSize();
+		if (pixelSize >= 4 * FLOAT_EPSILON * job.getMaxIterations() * magnitude && isVectorised()
+				&& job.getMaxIterations() <= FLOAT_MAX_ITERATIONS) {
+			return Arithmetic.FLOAT;
+		}
+		if (pixelSize >= DOUBLE_LIMIT * magnitude) {
+			return Arithmetic.DOUBLE;
+		}
+		if (pixelSize >= DOUBLE_DOUBLE_LIMIT * magnitude || job.getType() == RenderJob.Type.JULIA) {
+			return Arithmetic.DOUBLE_DOUBLE;
+		}
+		return Arithmetic.PERTURBATION;
+	}
+	
+	/**
+	 * Gets the reference orbit of a deep frame. The orbit of the last deep frame is used again if its
+	 * reference point is inside this frame, otherwise the orbit of the centre of the frame is worked out
+	 * @param job frame to draw
+	 * @return reference orbit, or null if the frame was cancelled while working it out
+	 */
+	private ReferenceOrbit referenceOrbit(RenderJob job) {
+		if (lastOrbit != null && lastOrbit.covers(job)) {
+			return lastOrbit;
+		}
+		BigDecimal two = BigDecimal.valueOf(2);
+		BigDecimal cr = job.getExactxMin().add(job.getExactxMax()).divide(two);
+		BigDecimal ci = job.getExactyMin().add(job.getExactyMax()).divide(two).negate();
+		ReferenceOrbit orbit = ReferenceOrbit.mandelbrot(cr, ci, job.getMaxIterations(),
+				ReferenceOrbit.precisionFor(job.getPixelSize()), () -> isCancelled(job));
+		if (orbit != null) {
+			lastOrbit = orbit;
+		}
+		return orbit;
+	}
+
+	/**
+	 * Draws the Juliaset
+	 * @param job frame to draw
+	 * @param juliaset image to draw, null to leave the frame uncoloured
+	 * @return true if the frame was finished, false if a newer frame was requested before it was finished
+	 */
+	private boolean threadJuliaset(RenderJob job, BufferedImage juliaset) {
+		PartBuilderFactory builders = JuliaPartBuilder::new;
+		Arithmetic tier = arithmeticFor(job);
+		if (tier == Arithmetic.FLOAT) {
+			builders = FloatJuliaPartBuilder::new;
+		} else if (tier != Arithmetic.DOUBLE) {
+			builders = DoubleDoubleJuliaPartBuilder::new;
+		}
+		return render(job, juliaset, builders);
+	}
+	
+	/**
+	 * Cancels the frame being drawn
+	 */
+	public void cancel() {
+		generation.incrementAndGet();
+	}
+	
+	/**
+	 * Checks if a newer frame has been made, or the frame was cancelled
+	 * @param job frame to check
+	 * @return true if the frame should stop being drawn
+	 */
+	public boolean isCancelled(RenderJob job) {
+		return job.getGeneration() != generation.get();
+	}
+	
+	/**
+	 * Draws every tile of a fractal. In progressive mode the fractal is drawn in passes, each pass
+	 * iterating every 8th, 4th, 2nd and finally every pixel, and is shown to the pass listener after each pass.
+	 * If the frame overlaps the last frame, only the pixels which were not on screen before are
+	 * drawn from scratch, see reuseLastFrame. Otherwise, if there is a tile cache, the frame is put
+	 * together from cached tiles, see renderFromCache. The tiles only work out the state of the pixels,
+	 * the image is coloured from it afterwards by colour
+	 * @param job frame to draw
+	 * @param image image being drawn, null to only work out the state of the pixels
+	 * @param builders makes the partbuilder of a pass from its frame, buffer, step and the step of the pass before
+	 * @return true if every tile was drawn, false if the frame was cancelled
+	 */
+	private boolean render(RenderJob job, BufferedImage image, PartBuilderFactory builders) {
+		int tiles = countTiles(job.getWidth(), job.getHeight());
+		IterationBuffer buffer = newBuffer(job);
+		List<Object> settings = pixelSettings(job);
+		
+		//Splits the image into tiles which idle render threads steal from each other until all are drawn
+		PartBuilder builder = settings.equals(lastSettings) ? reuseLastFrame(job, buffer, builders) : null;
+		if (builder != null) {
+			executor.invokeTiles(tiles, builder);
+		} else if (tileCache != null && arithmeticFor(job).compareTo(Arithmetic.DOUBLE) <= 0 && renderFromCache(tileCache, job, image, buffer, builders)) {
+			//The frame was put together from the tile cache
+		} else if (progressive) {
+			int previousStep = 0;
+			for (int step = PROGRESSIVE_STEP; step > 1 && !isCancelled(job); step /= 2) {
+				executor.invokeTiles(tiles, builders.newPartBuilder(job, buffer, step, previousStep));
+				if (image != null && !isCancelled(job)) {
+					colour(job, buffer, getPixels(image));
+					showPass(image);
+				}
+				previousStep = step;
+			}
+			executor.invokeTiles(tiles, builders.newPartBuilder(job, buffer, 1, previousStep));
+		} else {
+			executor.invokeTiles(tiles, builders.newPartBuilder(job, buffer, 1, 0));
+		}
+		
+		if (isCancelled(job)) {
+			return false;
+		}
+		if (image != null) {
+			colour(job, buffer, getPixels(image));
+		}
+		arithmetic = arithmeticFor(job);
+		lastSettings = settings;
+		lastJob = job;
+		lastBuffer = buffer;
+		return true;
+	}
+	
+	/**
+	 * Colours every pixel of a frame from the smooth iteration counts in its buffer with the current
+	 * palette, colour offset and colour density. Nothing is iterated, the frame is split into bands
+	 * of rows which are coloured on the render threads
+	 * @param job frame to colour
+	 * @param buffer state of the pixels of the frame
+	 * @param pixels pixels of the image to colour
+	 */
+	private void colour(RenderJob job, IterationBuffer buffer, int[] pixels) {
+		Palette colours = palette;
+		double offset = colourOffset;
+		double density = colourDensity(job.getType());
+		int width = job.getWidth();
+		int height = job.getHeight();
+		int rows = tileSize;
+		executor.invokeTiles((height + rows - 1) / rows, band -> {
+			int end = Math.min(height, (band + 1) * rows) * width;
+			for (int i = band * rows * width; i < end; i++) {
+				float smooth = buffer.getSmooth(i);
+				pixels[i] = smooth == IterationBuffer.NOT_ESCAPED ? BLACK : colours.colour(smooth, density, offset);
+			}
+		});
+	}
+	
+	/**
+	 * Gets the number of iterations for one cycle of the palette
+	 * @param type which fractal is coloured
+	 * @return colour density, or the default of the fractal if it is not set
+	 */
+	private double colourDensity(RenderJob.Type type) {
+		return colourDensity > 0 ? colourDensity : type == RenderJob.Type.MANDELBROT ? MANDELBROT_DENSITY : JULIA_DENSITY;
+	}
+	
+	/**
+	 * Colours the last frame again with the current palette, colour offset and colour density, without iterating it
+	 * @return image of the last frame, or null if no frame was finished yet
+	 */
+	public BufferedImage recolour() {
+		RenderJob job = lastJob;
+		if (job == null) {
+			return null;
+		}
+		BufferedImage image = new BufferedImage(job.getWidth(), job.getHeight(), BufferedImage.TYPE_INT_RGB);
+		colour(job, lastBuffer, getPixels(image));
+		return image;
+	}
+	
+	/**
+	 * Draws a frame which lies inside the last frame by resampling the last frame instead of iterating it.
+	 * The smooth iteration count of each pixel is interpolated between the four nearest pixels of the last frame,
+	 * or taken from the nearest one next to the inside of the set, and coloured with the current palette.
+	 * Best when the last frame has at least as many pixels across the frame as the frame itself
+	 * @param job frame to draw, of the same fractal as the last frame
+	 * @return image of the frame, or null if there is no last frame, the frame is not inside it
+	 * or it needs more iterations than the last frame was iterated up to
+	 */
+	public BufferedImage resample(RenderJob job) {
+		RenderJob source = lastJob;
+		IterationBuffer buffer = lastBuffer;
+		if (source == null || source.getType() != job.getType() || source.getCr() != job.getCr() || source.getCi() != job.getCi()
+				|| source.getMaxIterations() < job.getMaxIterations()
+				|| job.getExactxMin().compareTo(source.getExactxMin()) < 0 || job.getExactxMax().compareTo(source.getExactxMax()) > 0
+				|| job.getExactyMin().compareTo(source.getExactyMin()) < 0 || job.getExactyMax().compareTo(source.getExactyMax()) > 0) {
+			return null;
+		}
+		int width = job.getWidth();
+		int height = job.getHeight();
+		int sourceWidth = source.getWidth();
+		int sourceHeight = source.getHeight();
+		//Pixel x of the frame is at left + x*xStep pixels of the last frame, only differences are rounded to doubles
+		double xScale = sourceWidth / source.getxRange();
+		double yScale = sourceHeight / source.getyRange();
+		double left = job.getExactxMin().subtract(source.getExactxMin()).doubleValue() * xScale;
+		double top = job.getExactyMin().subtract(source.getExactyMin()).doubleValue() * yScale;
+		double xStep = job.getxRange() / width * xScale;
+		double yStep = job.getyRange() / height * yScale;
+		Palette colours = palette;
+		double offset = colourOffset;
+		double density = colourDensity(job.getType());
+		//Pixels which escaped after the max iterations of the frame did not escape in it
+		float limit = job.getMaxIterations();
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		int[] pixels = getPixels(image);
+		int rows = tileSize;
+		executor.invokeTiles((height + rows - 1) / rows, band -> {
+			for (int y = band * rows; y < Math.min(height, (band + 1) * rows); y++) {
+				double sy = Math.min(top + y * yStep, sourceHeight - 1);
+				int y1 = (int) sy;
+				int y2 = Math.min(y1 + 1, sourceHeight - 1);
+				double fy = sy - y1;
+				for (int x = 0; x < width; x++) {
+					double sx = Math.min(left + x * xStep, sourceWidth - 1);
+					int x1 = (int) sx;
+					int x2 = Math.min(x1 + 1, sourceWidth - 1);
+					double fx = sx - x1;
+					float a = escaped(buffer.getSmooth(y1 * sourceWidth + x1), limit), b = escaped(buffer.getSmooth(y1 * sourceWidth + x2), limit);
+					float c = escaped(buffer.getSmooth(y2 * sourceWidth + x1), limit), d = escaped(buffer.getSmooth(y2 * sourceWidth + x2), limit);
+					double smooth;
+					if (a == IterationBuffer.NOT_ESCAPED || b == IterationBuffer.NOT_ESCAPED || c == IterationBuffer.NOT_ESCAPED || d == IterationBuffer.NOT_ESCAPED) {
+						smooth = fy < 0.5 ? (fx < 0.5 ? a : b) : (fx < 0.5 ? c : d);
+					} else {
+						smooth = (a + (b - a) * fx) * (1 - fy) + (c + (d - c) * fx) * fy;
+					}
+					pixels[y * width + x] = smooth == IterationBuffer.NOT_ESCAPED ? BLACK : colours.colour(smooth, density, offset);
+				}
+			}
+		});
+		return image;
+	}
+	
+	/**
+	 * Checks a smooth iteration count against max iterations lower than the ones it was worked out with
+	 * @param smooth smooth iteration count
+	 * @param limit max iterations
+	 * @return the count, or NOT_ESCAPED if the pixel had not escaped by the limit
+	 */
+	private static float escaped(float smooth, float limit) {
+		return smooth >= limit ? IterationBuffer.NOT_ESCAPED : smooth;
+	}
+	
+	/**
+	 * Shows an image which is not finished yet, after each pass of a progressive frame
+	 * @param image image being drawn
+	 */
+	private void showPass(BufferedImage image) {
+		Consumer<BufferedImage> listener = passListener;
+		if (listener != null) {
+			listener.accept(image);
+		}
+	}
+	
+	/**
+	 * Gets the settings which change the state worked out for the pixels of a frame: interior and periodicity
+	 * checks, render mode and arithmetic. The last frame is only reused if they have not changed since it was drawn,
+	 * otherwise its pixels would not match the ones drawn around them, and cached tiles are kept apart by them
+	 * @param job frame being drawn
+	 * @return settings, equal for frames whose pixels can be mixed
+	 */
+	private List<Object> pixelSettings(RenderJob job) {
+		return List.of(interiorChecks, periodicityChecks, renderMode, arithmeticFor(job));
+	}
+	
+	/**
+	 * Copies the state of the pixels of the last frame which are still on screen, when the frame is
+	 * the last frame moved by a whole number of pixels or not moved at all.
+	 * If max iterations went up, the copied pixels which reached the old limit carry on iterating
+	 * from where they stopped. If it went down, only their smooth iteration counts are worked out again
+	 * @param job frame being drawn
+	 * @param buffer state of the pixels of the frame being drawn
+	 * @param builders makes the partbuilder
+	 * @return partbuilder which draws the rest of the frame, or null if nothing could be copied
+	 */
+	private PartBuilder reuseLastFrame(RenderJob job, IterationBuffer buffer, PartBuilderFactory builders) {
+		int[] offset = job.offsetFrom(lastJob);
+		if (offset == null) {
+			return null;
+		}
+		int width = job.getWidth();
+		Rectangle frame = new Rectangle(0, 0, width, job.getHeight());
+		Rectangle reused = frame.intersection(new Rectangle(-offset[0], -offset[1], width, job.getHeight()));
+		buffer.copyFrom(lastBuffer, reused, offset[0], offset[1]);
+		
+		int limit = lastBuffer.getLimit();
+		int maxIterations = job.getMaxIterations();
+		int resumeFrom = 0;
+		if (maxIterations > limit) {
+			resumeFrom = limit;
+		} else if (reused.equals(frame)) {
+			//Nothing new is iterated, so the higher limit is kept for when max iterations goes back up
+			buffer.setLimit(limit);
+		} else if (maxIterations < limit) {
+			buffer.lowerLimit(reused, maxIterations);
+		}
+		
+		PartBuilder builder = builders.newPartBuilder(job, buffer, 1, 0);
+		builder.setReused(reused, resumeFrom, maxIterations != lastJob.getMaxIterations());
+		return builder;
+	}
+	
+	/**
+	 * Puts a frame together from the tiles of a tile cache. The frame is covered by the tiles of the coarsest level
+	 * whose pixels are at least as fine as its own, tiles which are not cached are drawn and then added
+	 * to the cache. Each pixel of the frame takes the state of the nearest pixel of the tiles.
+	 * In progressive mode the missing tiles are drawn in passes and the frame is shown to the pass listener after each pass
+	 * @param cache tile cache
+	 * @param job frame to draw
+	 * @param image image being drawn, null if it is not coloured
+	 * @param buffer state of the pixels of the frame being drawn
+	 * @param builders makes the partbuilders of the tiles
+	 * @return false if the frame is zoomed in too far for the tile grid, nothing is drawn then
+	 */
+	private boolean renderFromCache(TileCache cache, RenderJob job, BufferedImage image, IterationBuffer buffer, PartBuilderFactory builders) {
+		int width = job.getWidth();
+		int height = job.getHeight();
+		int level = TileCache.levelFor(job.getPixelSize());
+		if (level > TileCache.MAX_LEVEL) {
+			return false;
+		}
+		double tileWidth = TileCache.tileWidth(level);
+		double tilePixel = TileCache.pixelSize(level);
+		int size = TileCache.TILE_SIZE;
+		
+		//Nearest pixel of the quadtree grid to each column and row of the frame
+		long[] columns = new long[width];
+		long[] rows = new long[height];
+		for (int x = 0; x < width; x++) {
+			columns[x] = Math.round(job.real(x) / tilePixel);
+		}
+		for (int y = 0; y < height; y++) {
+			rows[y] = Math.round(-job.imaginary(y) / tilePixel);
+		}
+		long left = Math.floorDiv(Math.min(columns[0], columns[width - 1]), size);
+		long top = Math.floorDiv(Math.min(rows[0], rows[height - 1]), size);
+		int across = (int) (Math.floorDiv(Math.max(columns[0], columns[width - 1]), size) - left + 1);
+		int down = (int) (Math.floorDiv(Math.max(rows[0], rows[height - 1]), size) - top + 1);
+		
+		IterationBuffer[] tiles = new IterationBuffer[across * down];
+		TileCache.Key[] keys = new TileCache.Key[tiles.length];
+		int[] missing = new int[tiles.length];
+		int missingCount = 0;
+		List<Object> settings = pixelSettings(job);
+		for (int i = 0; i < tiles.length; i++) {
+			keys[i] = new TileCache.Key(job.getType(), job.getCr(), job.getCi(), level, left + i % across, top + i / across, job.getMaxIterations(), settings);
+			tiles[i] = cache.get(keys[i]);
+			if (tiles[i] == null) {
+				tiles[i] = new IterationBuffer(size, size, job.getMaxIterations());
+				missing[missingCount++] = i;
+			}
+		}
+		
+		//Each missing tile is drawn as a frame of its own, with the generation of this frame so it is cancelled with it
+		RenderJob[] tileJobs = new RenderJob[missingCount];
+		for (int m = 0; m < missingCount; m++) {
+			double x1 = (left + missing[m] % across) * tileWidth;
+			double y1 = (top + missing[m] / across) * tileWidth;
+			tileJobs[m] = new RenderJob(job.getType(), size, size, x1, x1 + tileWidth, y1, y1 + tileWidth,
+					job.getMaxIterations(), job.getCr(), job.getCi(), job.getGeneration());
+		}
+		int parts = countTiles(size, size);
+		int previousStep = 0;
+		for (int step = progressive ? PROGRESSIVE_STEP : 1; step >= 1 && missingCount > 0 && !isCancelled(job); step /= 2) {
+			int passStep = step;
+			int passPreviousStep = previousStep;
+			executor.invokeTiles(missingCount, m -> {
+				PartBuilder builder = builders.newPartBuilder(tileJobs[m], tiles[missing[m]], passStep, passPreviousStep);
+				for (int part = 0; part < parts; part++) {
+					builder.accept(part);
+				}
+			});
+			if (step > 1 && image != null && !isCancelled(job)) {
+				assemble(buffer, tiles, across, left, top, columns, rows);
+				colour(job, buffer, getPixels(image));
+				showPass(image);
+			}
+			previousStep = step;
+		}
+		
+		if (!isCancelled(job)) {
+			for (int m = 0; m < missingCount; m++) {
+				cache.put(keys[missing[m]], tiles[missing[m]]);
+			}
+			assemble(buffer, tiles, across, left, top, columns, rows);
+		}
+		return true;
+	}
+	
+	/**
+	 * Copies the state of every pixel of a frame from the nearest pixel of the tiles covering it,
+	 * in bands of rows on the render threads
+	 * @param buffer state of the pixels of the frame
+	 * @param tiles tiles covering the frame, row by row
+	 * @param across number of tiles in a row
+	 * @param left column of the first tile on the quadtree grid
+	 * @param top row of the first tile on the quadtree grid
+	 * @param columns nearest column of the quadtree grid to each column of the frame
+	 * @param rows nearest row of the quadtree grid to each row of the frame
+	 */
+	private void assemble(IterationBuffer buffer, IterationBuffer[] tiles, int across, long left, long top, long[] columns, long[] rows) {
+		int size = TileCache.TILE_SIZE;
+		int width = buffer.getWidth();
+		int height = buffer.getHeight();
+		int[] tileColumns = new int[width];
+		int[] pixelColumns = new int[width];
+		for (int x = 0; x < width; x++) {
+			tileColumns[x] = (int) (Math.floorDiv(columns[x], size) - left);
+			pixelColumns[x] = Math.floorMod(columns[x], size);
+		}
+		int bandHeight = tileSize;
+		executor.invokeTiles((height + bandHeight - 1) / bandHeight, band -> {
+			for (int y = band * bandHeight; y < Math.min(height, (band + 1) * bandHeight); y++) {
+				int tileRow = (int) (Math.floorDiv(rows[y], size) - top) * across;
+				int pixelRow = Math.floorMod(rows[y], size) * size;
+				for (int x = 0; x < width; x++) {
+					buffer.copy(tiles[tileRow + tileColumns[x]], pixelRow + pixelColumns[x], y * width + x);
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Gets the pixel array backing an image, pixels are stored row by row as RGB ints
+	 * @param image image of type TYPE_INT_RGB
+	 * @return pixels of the image
+	 */
+	private static int[] getPixels(BufferedImage image) {
+		return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	}
+	
+	/**
+	 * Gets the buffer to draw a frame into, the buffer of the last tile of an iteration file
+	 * if it has the same size, or else a new one
+	 * @param job frame to draw
+	 * @return buffer of the frame
+	 */
+	private IterationBuffer newBuffer(RenderJob job) {
+		IterationBuffer buffer = spareBuffer;
+		spareBuffer = null;
+		if (buffer == null || buffer.getWidth() != job.getWidth() || buffer.getHeight() != job.getHeight()) {
+			return new IterationBuffer(job.getWidth(), job.getHeight(), job.getMaxIterations());
+		}
+		buffer.setLimit(job.getMaxIterations());
+		return buffer;
+	}
+	
+	/**
+	 * Counts the number of tiles needed to cover an image
+	 * @param x width
+	 * @param y height
+	 * @return number of tiles
+	 */
+	private int countTiles(int x, int y) {
+		return ((x + tileSize - 1) / tileSize) * ((y + tileSize - 1) / tileSize);
+	}
+	
+	/**
+	 * Gets the thread pool which renders the frames
+	 * @return render executor
+	 */
+	public RenderExecutor getRenderExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * Stops the render threads, no frames can be drawn afterwards
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+	
+	/**
+	 * Copies how frames are drawn and coloured from another renderer: tile size, render mode, interior and
+	 * periodicity checks, the vector kernel, palette, colour offset and colour density.
+	 * The tile cache, progressive drawing, pass listener and stats listeners are not copied
+	 * @param other renderer to copy from
+	 */
+	public void copySettings(FractalRenderer other) {
+		tileSize = other.tileSize;
+		renderMode = other.renderMode;
+		interiorChecks = other.interiorChecks;
+		periodicityChecks = other.periodicityChecks;
+		vectorised = other.vectorised;
+		palette = other.palette;
+		colourOffset = other.colourOffset;
+		colourDensity = other.colourDensity;
+	}
+	
+	/**
+	 * Sets what is told about the image after each pass of a progressive frame, before the frame is finished
+	 * @param passListener listener, null for none
+	 */
+	public void setPassListener(Consumer<BufferedImage> passListener) {
+		this.passListener = passListener;
+	}
+	
+	/**
+	 * Adds a listener which is told the measurements of every frame once it is finished or cancelled,
+	 * including the bands and tiles drawn as frames of their own. Listeners are called on the thread
+	 * which drew the frame, before render returns, so they should be quick
+	 * @param listener listener
+	 */
+	public void addStatsListener(Consumer<RenderStats> listener) {
+		statsListeners.add(listener);
+	}
+	
+	/**
+	 * Removes a stats listener
+	 * @param listener listener added by addStatsListener
+	 */
+	public void removeStatsListener(Consumer<RenderStats> listener) {
+		statsListeners.remove(listener);
+	}
+	
+	/**
+	 * Gets the measurements of the last frame, finished or cancelled
+	 * @return stats, null if no frame was drawn yet
+	 */
+	public RenderStats getLastStats() {
+		return lastStats;
+	}
+	
+	/**
+	 * Sets the size of the square tiles frames are split into when threading
+	 * @param tileSize width and height of a tile in pixels
+	 */
+	public void setTileSize(int tileSize) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("Tile size must be positive: " + tileSize);
+		}
+		this.tileSize = tileSize;
+	}
+	
+	/**
+	 * Forgets the last frame, so the next frame is drawn from scratch instead of reusing its pixels.
+	 * The reference orbit is kept
+	 */
+	public void clearLastFrame() {
+		lastJob = null;
+		lastBuffer = null;
+	}
+	
+	/**
+	 * Gets the reference orbit of the last frame drawn by perturbation, so other renderers can use it
+	 * @return reference orbit, null if no frame was drawn by perturbation
+	 */
+	public ReferenceOrbit getReferenceOrbit() {
+		return lastOrbit;
+	}
+	
+	/**
+	 * Sets the reference orbit used again by the next deep frames it covers, such as an orbit
+	 * worked out by another renderer for a nearby frame
+	 * @param orbit reference orbit
+	 */
+	public void setReferenceOrbit(ReferenceOrbit orbit) {
+		lastOrbit = orbit;
+	}
+	
+	/**
+	 * Getter for tile size
+	 * @return tile size
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+	
+	/**
+	 * Sets if points in the main cardioid and period 2 bulb of the Mandelbrot set are
+	 * filled in without iterating them
+	 * @param interiorChecks true to skip them, false to iterate every point
+	 */
+	public void setInteriorChecks(boolean interiorChecks) {
+		this.interiorChecks = interiorChecks;
+	}
+	
+	/**
+	 * Sets if points of the Mandelbrot set stop iterating once their orbit repeats itself
+	 * @param periodicityChecks true to look for repeating orbits, false to iterate up to max iterations
+	 */
+	public void setPeriodicityChecks(boolean periodicityChecks) {
+		this.periodicityChecks = periodicityChecks;
+	}
+	
+	/**
+	 * Sets if rows of double precision frames are iterated a SIMD register of pixels at a time with the
+	 * Vector API, used from the next frame. Ignored when jdk.incubator.vector is not
+	 * available, which needs the JVM to be run with --add-modules jdk.incubator.vector.
+	 * Starts off as the fractal.vector system property, off by default as the vector kernel is very slow
+	 * until the JIT has compiled it
+	 * @param vectorised true to use the vector kernel where it is available, false to iterate each pixel on its own
+	 */
+	public void setVectorised(boolean vectorised) {
+		this.vectorised = vectorised;
+	}
+	
+	/**
+	 * Checks if rows are iterated with the vector kernel
+	 * @return true if the vector kernel is used
+	 */
+	public boolean isVectorised() {
+		return vectorised && RowKernel.VECTOR != null;
+	}
+	
+	/**
+	 * Sets the tile cache frames are put together from, it can be shared with other renderers.
+	 * Frames are then drawn on the quadtree grid of the cache instead of on their own pixels
+	 * @param tileCache tile cache, null to draw every frame from scratch
+	 */
+	public void setTileCache(TileCache tileCache) {
+		this.tileCache = tileCache;
+	}
+	
+	/**
+	 * Getter for tile cache
+	 * @return tile cache, null if there is none
+	 */
+	public TileCache getTileCache() {
+		return tileCache;
+	}
+	
+	/**
+	 * Sets how the pixels of each tile are worked out, used from the next frame
+	 * @param renderMode render mode
+	 */
+	public void setRenderMode(RenderMode renderMode) {
+		this.renderMode = renderMode;
+	}
+	
+	/**
+	 * Getter for render mode
+	 * @return render mode
+	 */
+	public RenderMode getRenderMode() {
+		return renderMode;
+	}
+	
+	/**
+	 * Sets if frames are drawn coarse to fine, showing a low resolution image first which is
+	 * refined at 1/4, 1/2 and full resolution. Render mode is not used while drawing progressively
+	 * @param progressive true to draw progressively
+	 */
+	public void setProgressive(boolean progressive) {
+		this.progressive = progressive;
+	}
+	
+	/**
+	 * Checks if frames are drawn progressively
+	 * @return true if progressive
+	 */
+	public boolean isProgressive() {
+		return progressive;
+	}
+	
+	/**
+	 * Gets the number of pixels which were iterated in the last frame
+	 * @return computed pixels
+	 */
+	public long getComputedPixels() {
+		return computedPixels.sum();
+	}
+	
+	/**
+	 * Gets the number of pixels which were filled in without iterating them in the last frame
+	 * @return filled pixels
+	 */
+	public long getFilledPixels() {
+		return filledPixels.sum();
+	}
+	
+	/**
+	 * Gets the state of every pixel of the last frame which was finished
+	 * @return iteration buffer, null if no frame was finished yet
+	 */
+	public IterationBuffer getIterationBuffer() {
+		return lastBuffer;
+	}
+	
+	/**
+	 * Gets the arithmetic the last finished frame was iterated in
+	 * @return arithmetic
+	 */
+	public Arithmetic getArithmetic() {
+		return arithmetic;
+	}
+	
+	/**
+	 * Sets the palette escaped points are coloured with
+	 * @param palette palette
+	 */
+	public void setPalette(Palette palette) {
+		this.palette = palette;
+	}
+	
+	/**
+	 * Getter for palette
+	 * @return palette
+	 */
+	public Palette getPalette() {
+		return palette;
+	}
+	
+	/**
+	 * Sets the position in the palette, as a fraction of a cycle, which is subtracted from every point
+	 * @param colourOffset colour offset
+	 */
+	public void setColourOffset(double colourOffset) {
+		this.colourOffset = colourOffset;
+	}
+	
+	/**
+	 * Getter for colour offset
+	 * @return colour offset
+	 */
+	public double getColourOffset() {
+		return colourOffset;
+	}
+	
+	/**
+	 * Sets the number of iterations for one cycle of the palette
+	 * @param colourDensity colour density, 0 for the default of the fractal (90 for the Mandelbrot set, 100 for the Juliaset)
+	 */
+	public void setColourDensity(double colourDensity) {
+		if (colourDensity < 0) {
+			throw new IllegalArgumentException("Colour density must not be negative: " + colourDensity);
+		}
+		this.colourDensity = colourDensity;
+	}
+	
+	/**
+	 * Getter for colour density
+	 * @return colour density, 0 if the default of the fractal is used
+	 */
+	public double getColourDensity() {
+		return colourDensity;
+	}
+
+	/**
+	 * Partbuilder which draws a single tile of a frame
+	 * @author Vedant Chokshi
+	 */
+	private abstract class PartBuilder implements IntConsumer {
+		protected RenderJob job;
+		protected IterationBuffer buffer;
+		protected int width, height, maxIterations;
+		protected RowKernel rowKernel;
+		private RenderMode mode;
+		private int step, previousStep, resumeFrom;
+		private Rectangle reused;
+		private boolean limitChanged;
+		
+		public PartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep) {
+			this.job = job;
+			this.buffer = buffer;
+			this.width = job.getWidth();
+			this.height = job.getHeight();
+			this.maxIterations = job.getMaxIterations();
+			this.step = step;
+			this.previousStep = previousStep;
+			mode = renderMode;
+			rowKernel = vectorised ? RowKernel.VECTOR : null;
+		}
+		
+		@Override
+		public void accept(int tile) {
+			if (isCancelled(job)) {
+				return;
+			}
+			int tilesAcross = (width + tileSize - 1) / tileSize;
+			int x1 = (tile % tilesAcross) * tileSize;
+			int y1 = (tile / tilesAcross) * tileSize;
+			int x2 = Math.min(x1 + tileSize, width);
+			int y2 = Math.min(y1 + tileSize, height);
+			TileEvent event = new TileEvent();
+			event.begin();
+			long start = System.nanoTime();
+			drawTile(x1, y1, x2, y2);
+			long time = System.nanoTime() - start;
+			event.end();
+			tileCount.increment();
+			tileNanos.add(time);
+			longestTile.accumulate(time);
+			if (event.shouldCommit()) {
+				event.x = x1;
+				event.y = y1;
+				event.width = x2 - x1;
+				event.height = y2 - y1;
+				event.step = step;
+				event.commit();
+			}
+		}
+		
+		/**
+		 * Draws the pixels of a tile, or the pixels of a pass of it, and counts the pixels computed and filled
+		 * @param x1 left edge
+		 * @param y1 top edge
+		 * @param x2 right edge (exclusive)
+		 * @param y2 bottom edge (exclusive)
+		 */
+		private void drawTile(int x1, int y1, int x2, int y2) {
+			EscapeTime kernel = newKernel();
+			
+			if (reused != null) {
+				int computed = drawAround(kernel, x1, y1, x2, y2);
+				computed += continueRectangle(kernel, Math.max(x1, reused.x), Math.max(y1, reused.y),
+						Math.min(x2, reused.x + reused.width), Math.min(y2, reused.y + reused.height));
+				computedPixels.add(computed);
+				return;
+			}
+			if (step > 1 || previousStep > 0) {
+				computedPixels.add(drawPass(kernel, x1, y1, x2, y2));
+				return;
+			}
+			
+			//Every pixel of the tile is either iterated or filled, never both
+			int filled = 0;
+			if (mode == RenderMode.MARIANI_SILVER) {
+				int[] known = new int[(x2 - x1) * (y2 - y1)];
+				Arrays.fill(known, -1);
+				filled = subdivide(kernel, known, x1, y1, x2 - x1, x1, y1, x2, y2);
+			} else {
+				drawRectangle(kernel, x1, y1, x2, y2);
+			}
+			computedPixels.add((x2 - x1) * (y2 - y1) - filled);
+			filledPixels.add(filled);
+		}
+		
+		/**
+		 * Sets the part of the frame which was copied from the last frame and does not need drawing from scratch
+		 * @param reused copied part of the frame
+		 * @param resumeFrom limit the copied pixels were iterated up to if they have to be iterated further, 0 if not
+		 * @param limitChanged true if max iterations changed, so the smooth iteration counts of the copied pixels are worked out again
+		 */
+		public void setReused(Rectangle reused, int resumeFrom, boolean limitChanged) {
+			this.reused = reused;
+			this.resumeFrom = resumeFrom;
+			this.limitChanged = limitChanged;
+		}
+		
+		/**
+		 * Finishes the pixels of a rectangle copied from the last frame. Pixels which reached the old limit
+		 * carry on iterating from the z they stopped at, pixels without a stored z start again
+		 * @param kernel kernel to iterate with
+		 * @param x1 left edge
+		 * @param y1 top edge
+		 * @param x2 right edge (exclusive)
+		 * @param y2 bottom edge (exclusive)
+		 * @return number of pixels iterated
+		 */
+		private int continueRectangle(EscapeTime kernel, int x1, int y1, int x2, int y2) {
+			int computed = 0;
+			long iterated = 0;
+			for(int y=y1; y < y2 && !isCancelled(job); y++) {
+				double imaginary = imaginary(y);
+				int row = y * width;
+				for(int x=x1; x < x2; x++) {
+					int index = row + x;
+					if (resumeFrom > 0 && buffer.getIterations(index) == resumeFrom) {
+						double real = real(x);
+						int iterations;
+						if (buffer.hasState(index)) {
+							iterations = resume(kernel, real, imaginary, buffer.getZr(index), buffer.getZi(index), resumeFrom);
+						} else {
+							iterations = iterate(kernel, real, imaginary);
+						}
+						iterated += kernel.getIterationsDone();
+						buffer.set(index, iterations, kernel.getZr(), kernel.getZi());
+						computed++;
+					}
+					if (limitChanged) {
+						buffer.updateSmooth(index, maxIterations);
+					}
+				}
+			}
+			iterationCount.add(iterated);
+			return computed;
+		}
+		
+		/**
+		 * Draws the pixels of a tile which are outside the copied part of the frame.
+		 * These make up at most four rectangles, above, below, left and right of the copied part
+		 * @param kernel kernel to iterate with
+		 * @param x1 left edge
+		 * @param y1 top edge
+		 * @param x2 right edge (exclusive)
+		 * @param y2 bottom edge (exclusive)
+		 * @return number of pixels iterated
+		 */
+		private int drawAround(EscapeTime kernel, int x1, int y1, int x2, int y2) {
+			int top = Math.max(y1, Math.min(y2, reused.y));
+			int bottom = Math.min(y2, Math.max(y1, reused.y + reused.height));
+			int left = Math.max(x1, Math.min(x2, reused.x));
+			int right = Math.min(x2, Math.max(x1, reused.x + reused.width));
+			
+			drawRectangle(kernel, x1, y1, x2, top);
+			drawRectangle(kernel, x1, bottom, x2, y2);
+			drawRectangle(kernel, x1, top, left, bottom);
+			drawRectangle(kernel, right, top, x2, bottom);
+			return (x2 - x1) * (y2 - y1) - (right - left) * (bottom - top);
+		}
+		
+		/**
+		 * Draws every pixel of a rectangle, row by row so each thread writes to consecutive pixels
+		 * @param kernel kernel to iterate with
+		 * @param x1 left edge
+		 * @param y1 top edge
+		 * @param x2 right edge (exclusive)
+		 * @param y2 bottom edge (exclusive)
+		 */
+		private void drawRectangle(EscapeTime kernel, int x1, int y1, int x2, int y2) {
+			if (x2 <= x1) {
+				return;
+			}
+			Row row = new Row(x2 - x1);
+			for(int x=x1; x < x2; x++) {
+				row.add(x);
+			}
+			for(int y=y1; y < y2 && !isCancelled(job); y++) {
+				drawRow(kernel, row, y);
+			}
+		}
+		
+		/**
+		 * Draws one pass of a progressive render. Every step-th pixel of every step-th row is iterated
+		 * and its smooth iteration count fills the step by step block below and to the right of it. Pixels already
+		 * iterated in the pass before are skipped
+		 * @param kernel kernel to iterate with
+		 * @param x1 left edge
+		 * @param y1 top edge
+		 * @param x2 right edge (exclusive)
+		 * @param y2 bottom edge (exclusive)
+		 * @return number of pixels iterated
+		 */
+		private int drawPass(EscapeTime kernel, int x1, int y1, int x2, int y2) {
+			int computed = 0;
+			Row points = new Row(x2 - x1);
+			for(int y=firstMultiple(y1, step); y < y2 && !isCancelled(job); y+=step) {
+				boolean previousRow = previousStep > 0 && y % previousStep == 0;
+				int blockHeight = Math.min(step, height - y);
+				points.count = 0;
+				for(int x=firstMultiple(x1, step); x < x2; x+=step) {
+					if (!previousRow || x % previousStep != 0) {
+						points.add(x);
+					}
+				}
+				drawRow(kernel, points, y);
+				computed += points.count;
+				
+				for (int n = 0; step > 1 && n < points.count; n++) {
+					int x = points.columns[n];
+					int index = y * width + x;
+					float smooth = buffer.getSmooth(index);
+					int blockWidth = Math.min(step, width - x);
+					for (int row = index; row < index + blockHeight * width; row += width) {
+						buffer.fillSmooth(row, row + blockWidth, smooth);
+					}
+				}
+			}
+			return computed;
+		}
+		
+		/**
+		 * Draws the points of a row, together with the row kernel if the fractal has one
+		 * or else one at a time, and stores the state and smooth iteration count of their pixels
+		 * @param kernel kernel to iterate with when there is no row kernel
+		 * @param row columns of the points to draw
+		 * @param y pixel row
+		 */
+		private void drawRow(EscapeTime kernel, Row row, int y) {
+			double imaginary = imaginary(y);
+			int start = y * width;
+			for (int n = 0; n < row.count; n++) {
+				row.real[n] = real(row.columns[n]);
+			}
+			long iterated = 0;
+			if (!iterateRow(row, imaginary)) {
+				for (int n = 0; n < row.count; n++) {
+					drawPoint(kernel, start + row.columns[n], row.real[n], imaginary);
+					iterated += kernel.getIterationsDone();
+				}
+			} else {
+				for (int n = 0; n < row.count; n++) {
+					int index = start + row.columns[n];
+					buffer.set(index, row.iterations[n], row.zr[n], row.zi[n]);
+					buffer.updateSmooth(index, maxIterations);
+					iterated += row.iterations[n] == EscapeTime.INSIDE ? row.cycled[n] : row.iterations[n];
+				}
+			}
+			iterationCount.add(iterated);
+		}
+		
+		/**
+		 * Rounds up to a multiple of a step
+		 * @param from number to round up
+		 * @param step step
+		 * @return first multiple of step which is not smaller than from
+		 */
+		private int firstMultiple(int from, int step) {
+			return (from + step - 1) / step * step;
+		}
+		
+		/**
+		 * Iterates a single point and stores the state and smooth iteration count of its pixel
+		 * @param kernel kernel to iterate with
+		 * @param index index of the pixel
+		 * @param real real part of the point
+		 * @param imaginary imaginary part of the point
+		 * @return number of iterations
+		 */
+		private int drawPoint(EscapeTime kernel, int index, double real, double imaginary) {
+			int iterations = iterate(kernel, real, imaginary);
+			buffer.set(index, iterations, kernel.getZr(), kernel.getZi());
+			buffer.updateSmooth(index, maxIterations);
+			return iterations;
+		}
+		
+		/**
+		 * Mariani-Silver subdivision. Works out the border of a rectangle, if every point on it
+		 * is inside the set the inside is filled without being iterated. If every point escaped after the
+		 * same number of iterations the inside is iterated as one block, otherwise the rectangle is
+		 * split into four which share their edges
+		 * @param kernel kernel to iterate with
+		 * @param known iterations of the pixels of the tile already worked out, -1 if not
+		 * @param tileX left edge of the tile
+		 * @param tileY top edge of the tile
+		 * @param tileWidth width of the tile
+		 * @param x1 left edge
+		 * @param y1 top edge
+		 * @param x2 right edge (exclusive)
+		 * @param y2 bottom edge (exclusive)
+		 * @return number of pixels filled without iterating them
+		 */
+		private int subdivide(EscapeTime kernel, int[] known, int tileX, int tileY, int tileWidth, int x1, int y1, int x2, int y2) {
+			if (isCancelled(job)) {
+				return 0;
+			}
+			int first = borderPoint(kernel, known, tileX, tileY, tileWidth, x1, y1);
+			boolean same = true, inside = true;
+			for (int x = x1; x < x2; x++) {
+				int top = borderPoint(kernel, known, tileX, tileY, tileWidth, x, y1);
+				int bottom = borderPoint(kernel, known, tileX, tileY, tileWidth, x, y2 - 1);
+				same &= sameBorder(top, first) && sameBorder(bottom, first);
+				inside &= top == EscapeTime.INSIDE && bottom == EscapeTime.INSIDE;
+			}
+			for (int y = y1 + 1; y < y2 - 1; y++) {
+				int left = borderPoint(kernel, known, tileX, tileY, tileWidth, x1, y);
+				int right = borderPoint(kernel, known, tileX, tileY, tileWidth, x2 - 1, y);
+				same &= sameBorder(left, first) && sameBorder(right, first);
+				inside &= left == EscapeTime.INSIDE && right == EscapeTime.INSIDE;
+			}
+			
+			//Only the inside of the set is filled, outside it the smooth colour changes from pixel to pixel
+			//even where the number of iterations does not. If only some of the border was found inside by the
+			//checks the rest reached max iterations, so the inside is filled as reaching it too and is carried on
+			//if max iterations goes up
+			int filled = 0;
+			if (same && first >= maxIterations) {
+				int state = inside ? EscapeTime.INSIDE : maxIterations;
+				for (int y = y1 + 1; y < y2 - 1; y++) {
+					for (int x = x1 + 1; x < x2 - 1; x++) {
+						buffer.setUnknown(y * width + x, state);
+						buffer.updateSmooth(y * width + x, maxIterations);
+						known[(y - tileY) * tileWidth + x - tileX] = state;
+						filled++;
+					}
+				}
+			} else if (same || x2 - x1 <= MIN_SUBDIVISION || y2 - y1 <= MIN_SUBDIVISION) {
+				if (x2 - x1 > 2 && y2 - y1 > 2) {
+					drawRectangle(kernel, x1 + 1, y1 + 1, x2 - 1, y2 - 1);
+				}
+			} else {
+				int middleX = (x1 + x2) >>> 1;
+				int middleY = (y1 + y2) >>> 1;
+				filled += subdivide(kernel, known, tileX, tileY, tileWidth, x1, y1, middleX + 1, middleY + 1);
+				filled += subdivide(kernel, known, tileX, tileY, tileWidth, middleX, y1, x2, middleY + 1);
+				filled += subdivide(kernel, known, tileX, tileY, tileWidth, x1, middleY, middleX + 1, y2);
+				filled += subdivide(kernel, known, tileX, tileY, tileWidth, middleX, middleY, x2, y2);
+			}
+			return filled;
+		}
+		
+		/**
+		 * Checks if two points of a border count as the same for subdivide. Points which did not escape are
+		 * the same whether they reached max iterations or were found inside by the interior or periodicity checks
+		 * @param iterations iterations of a point
+		 * @param first iterations of the first point of the border
+		 * @return true if they are the same
+		 */
+		private boolean sameBorder(int iterations, int first) {
+			return iterations == first || (iterations >= maxIterations && first >= maxIterations);
+		}
+		
+		/**
+		 * Gets the iterations of a pixel on a border, only iterating it the first time
+		 * @return number of iterations
+		 */
+		private int borderPoint(EscapeTime kernel, int[] known, int tileX, int tileY, int tileWidth, int x, int y) {
+			int k = (y - tileY) * tileWidth + x - tileX;
+			if (known[k] < 0) {
+				known[k] = drawPoint(kernel, y * width + x, real(x), imaginary(y));
+				iterationCount.add(kernel.getIterationsDone());
+			}
+			return known[k];
+		}
+		
+		/**
+		 * Gets the real part of the points in a pixel column, as passed to iterate
+		 * @param x pixel column
+		 * @return real part
+		 */
+		protected double real(int x) {
+			return job.real(x);
+		}
+		
+		/**
+		 * Gets the imaginary part of the points in a pixel row, as passed to iterate
+		 * @param y pixel row
+		 * @return imaginary part
+		 */
+		protected double imaginary(int y) {
+			return job.imaginary(y);
+		}
+		
+		/**
+		 * Makes the kernel used to draw a tile
+		 * @return kernel
+		 */
+		protected abstract EscapeTime newKernel();
+		
+		/**
+		 * Iterates the points of a row together with the row kernel, for the fractals which have one
+		 * @param row points to iterate, their results are stored in it
+		 * @param imaginary imaginary part of the points
+		 * @return true if the row was iterated, false if there is no row kernel and the points have to be iterated one at a time
+		 */
+		protected boolean iterateRow(Row row, double imaginary) {
+			return false;
+		}
+		
+		/**
+		 * Iterates a single point of the fractal
+		 * @param kernel kernel to iterate with
+		 * @param real real part of the point
+		 * @param imaginary imaginary part of the point
+		 * @return number of iterations
+		 */
+		protected abstract int iterate(EscapeTime kernel, double real, double imaginary);
+		
+		/**
+		 * Carries on iterating a single point of the fractal from where an earlier iteration stopped
+		 * @param kernel kernel to iterate with
+		 * @param real real part of the point
+		 * @param imaginary imaginary part of the point
+		 * @param zr real part of z when the earlier iteration stopped
+		 * @param zi imaginary part of z when the earlier iteration stopped
+		 * @param iterations number of iterations already done
+		 * @return number of iterations
+		 */
+		protected abstract int resume(EscapeTime kernel, double real, double imaginary, double zr, double zi, int iterations);
+	}
+	
+	/**
+	 * Makes the partbuilder of one pass of a frame
+	 */
+	private interface PartBuilderFactory {
+		
+		/**
+		 * Makes a partbuilder
+		 * @param job frame to draw
+		 * @param buffer state of the pixels of the frame
+		 * @param step only every step-th pixel of every step-th row is iterated
+		 * @param previousStep step of the pass before, 0 if there was none
+		 * @return partbuilder
+		 */
+		PartBuilder newPartBuilder(RenderJob job, IterationBuffer buffer, int step, int previousStep);
+	}
+
+	/**
+	 * Partbuilder for Mandelbrot Set
+	 * @author Vedant Chokshi
+	 */
+	private class MandelbrotPartBuilder extends PartBuilder {		
+		private final double periodTolerance;
+		
+		public MandelbrotPartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep) {
+			super(job, buffer, step, previousStep);
+			periodTolerance = periodicityChecks ? EscapeTime.periodTolerance(job.getPixelSize()) : 0;
+		}
+		
+		@Override
+		protected EscapeTime newKernel() {
+			return new EscapeTime(job.getMaxIterations(), interiorChecks, periodTolerance);
+		}
+		
+		//Generates a point of the mandelbrot set
+		@Override
+		protected int iterate(EscapeTime kernel, double real, double imaginary) {
+			return kernel.mandelbrot(real, imaginary);
+		}
+		
+		@Override
+		protected boolean iterateRow(Row row, double imaginary) {
+			if (rowKernel == null) {
+				return false;
+			}
+			rowKernel.mandelbrot(row.real, imaginary, row.count, maxIterations, interiorChecks, periodTolerance, row.iterations, row.cycled, row.zr, row.zi);
+			return true;
+		}
+		
+		@Override
+		protected int resume(EscapeTime kernel, double real, double imaginary, double zr, double zi, int iterations) {
+			return kernel.mandelbrot(real, imaginary, zr, zi, iterations);
+		}
+		
+	}
+	
+	/**
+	 * Partbuilder for Mandelbrot Set iterated in floats, points are rounded to floats before they are iterated
+	 */
+	private class FloatMandelbrotPartBuilder extends MandelbrotPartBuilder {
+		
+		public FloatMandelbrotPartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep) {
+			super(job, buffer, step, previousStep);
+		}
+		
+		@Override
+		protected int iterate(EscapeTime kernel, double real, double imaginary) {
+			return kernel.mandelbrotFloat((float) real, (float) imaginary);
+		}
+		
+		@Override
+		protected boolean iterateRow(Row row, double imaginary) {
+			if (rowKernel == null) {
+				return false;
+			}
+			rowKernel.mandelbrotFloat(row.real, imaginary, row.count, maxIterations, interiorChecks, periodicityChecks, row.iterations, row.cycled, row.zr, row.zi);
+			return true;
+		}
+		
+		@Override
+		protected int resume(EscapeTime kernel, double real, double imaginary, double zr, double zi, int iterations) {
+			return kernel.mandelbrotFloat((float) real, (float) imaginary, (float) zr, (float) zi, iterations);
+		}
+	}
+	
+	/**
+	 * Partbuilder for Mandelbrot Set zoomed in too far for doubles. Points are passed to iterate
+	 * as their difference from the reference point, and are iterated by perturbation
+	 */
+	private class DeepMandelbrotPartBuilder extends PartBuilder {
+		private ReferenceOrbit orbit;
+		private double realOffset, imaginaryOffset;
+		
+		public DeepMandelbrotPartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep, ReferenceOrbit orbit) {
+			super(job, buffer, step, previousStep);
+			this.orbit = orbit;
+			//Only the difference from the reference point is rounded to a double
+			realOffset = job.getExactxMin().subtract(orbit.getCr()).doubleValue();
+			imaginaryOffset = -job.getExactyMin().add(orbit.getCi()).doubleValue();
+		}
+		
+		@Override
+		protected double real(int x) {
+			return realOffset + ((double) x/width)*job.getxRange();
+		}
+		
+		@Override
+		protected double imaginary(int y) {
+			return imaginaryOffset - ((double) y/height)*job.getyRange();
+		}
+		
+		@Override
+		protected EscapeTime newKernel() {
+			return new EscapeTime(job.getMaxIterations());
+		}
+		
+		@Override
+		protected int iterate(EscapeTime kernel, double real, double imaginary) {
+			return kernel.mandelbrot(orbit, real, imaginary);
+		}
+		
+		//The stored z is rounded to doubles, too coarse to carry on from this far in, so the point starts again
+		@Override
+		protected int resume(EscapeTime kernel, double real, double imaginary, double zr, double zi, int iterations) {
+			return iterate(kernel, real, imaginary);
+		}
+	}
+	
+	/**
+	 * Partbuilder which iterates in double-doubles. Points are passed to iterate as their distance
+	 * from the top left corner, which is added to the corner in double-double arithmetic
+	 */
+	private abstract class DoubleDoublePartBuilder extends PartBuilder {
+		private double xMin, xMinLow, yMin, yMinLow;
+		
+		public DoubleDoublePartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep) {
+			super(job, buffer, step, previousStep);
+			xMin = job.getxMin();
+			xMinLow = job.getxMinLow();
+			yMin = job.getyMin();
+			yMinLow = job.getyMinLow();
+		}
+		
+		@Override
+		protected double real(int x) {
+			return ((double) x/width)*job.getxRange();
+		}
+		
+		@Override
+		protected double imaginary(int y) {
+			return -((double) y/height)*job.getyRange();
+		}
+		
+		@Override
+		protected int iterate(EscapeTime kernel, double real, double imaginary) {
+			double r = xMin + real;
+			double i = imaginary - yMin;
+			return iterate(kernel, r, DoubleDouble.sumError(xMin, real, r) + xMinLow, i, DoubleDouble.sumError(imaginary, -yMin, i) - yMinLow);
+		}
+		
+		//The stored z is rounded to doubles, too coarse to carry on from this far in, so the point starts again
+		@Override
+		protected int resume(EscapeTime kernel, double real, double imaginary, double zr, double zi, int iterations) {
+			return iterate(kernel, real, imaginary);
+		}
+		
+		@Override
+		protected EscapeTime newKernel() {
+			return new EscapeTime(job.getMaxIterations());
+		}
+		
+		/**
+		 * Iterates a single point of the fractal given as double-doubles
+		 * @param kernel kernel to iterate with
+		 * @param realHi real part of the point
+		 * @param realLo low part of the real part of the point
+		 * @param imaginaryHi imaginary part of the point
+		 * @param imaginaryLo low part of the imaginary part of the point
+		 * @return number of iterations
+		 */
+		protected abstract int iterate(EscapeTime kernel, double realHi, double realLo, double imaginaryHi, double imaginaryLo);
+	}
+	
+	/**
+	 * Partbuilder for Mandelbrot Set in double-doubles
+	 */
+	private class DoubleDoubleMandelbrotPartBuilder extends DoubleDoublePartBuilder {
+		
+		public DoubleDoubleMandelbrotPartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep) {
+			super(job, buffer, step, previousStep);
+		}
+		
+		@Override
+		protected int iterate(EscapeTime kernel, double realHi, double realLo, double imaginaryHi, double imaginaryLo) {
+			return kernel.mandelbrotDoubleDouble(realHi, realLo, imaginaryHi, imaginaryLo);
+		}
+	}
+	
+	/**
+	 * Partbuilder for Juliaset in double-doubles
+	 */
+	private class DoubleDoubleJuliaPartBuilder extends DoubleDoublePartBuilder {
+		
+		public DoubleDoubleJuliaPartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep) {
+			super(job, buffer, step, previousStep);
+		}
+		
+		@Override
+		protected int iterate(EscapeTime kernel, double realHi, double realLo, double imaginaryHi, double imaginaryLo) {
+			return kernel.juliaDoubleDouble(realHi, realLo, imaginaryHi, imaginaryLo, job.getCr(), job.getCi());
+		}
+	}
+	
+	/**
+	 * Partbuilder for Juliaset
+	 * @author Vedant
+	 */
+	private class JuliaPartBuilder extends PartBuilder {
+		protected double cr, ci;
+		
+		public JuliaPartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep) {
+			super(job, buffer, step, previousStep);
+			cr = job.getCr();
+			ci = job.getCi();
+		}
+		
+		@Override
+		protected EscapeTime newKernel() {
+			return new EscapeTime(job.getMaxIterations());
+		}
+		
+		//Generates a point of the juliaset
+		@Override
+		protected int iterate(EscapeTime kernel, double real, double imaginary) {
+			return kernel.julia(real, imaginary, cr, ci);
+		}
+		
+		@Override
+		protected boolean iterateRow(Row row, double imaginary) {
+			if (rowKernel == null) {
+				return false;
+			}
+			rowKernel.julia(row.real, imaginary, cr, ci, row.count, maxIterations, row.iterations, row.zr, row.zi);
+			return true;
+		}
+		
+		@Override
+		protected int resume(EscapeTime kernel, double real, double imaginary, double zr, double zi, int iterations) {
+			return kernel.julia(zr, zi, cr, ci, iterations);
+		}		
+	}
+	
+	/**
+	 * Partbuilder for Juliaset iterated in floats, points and c are rounded to floats before they are iterated
+	 */
+	private class FloatJuliaPartBuilder extends JuliaPartBuilder {
+		
+		public FloatJuliaPartBuilder (RenderJob job, IterationBuffer buffer, int step, int previousStep) {
+			super(job, buffer, step, previousStep);
+		}
+		
+		@Override
+		protected int iterate(EscapeTime kernel, double real, double imaginary) {
+			return kernel.juliaFloat((float) real, (float) imaginary, (float) cr, (float) ci);
+		}
+		
+		@Override
+		protected boolean iterateRow(Row row, double imaginary) {
+			if (rowKernel == null) {
+				return false;
+			}
+			rowKernel.juliaFloat(row.real, imaginary, cr, ci, row.count, maxIterations, row.iterations, row.zr, row.zi);
+			return true;
+		}
+		
+		@Override
+		protected int resume(EscapeTime kernel, double real, double imaginary, double zr, double zi, int iterations) {
+			return kernel.juliaFloat((float) zr, (float) zi, (float) cr, (float) ci, iterations);
+		}
+	}
+	
+	/**
+	 * Points of one row of a tile which are drawn together, and the results the row kernel writes for them
+	 */
+	private static final class Row {
+		private final int[] columns, iterations, cycled;
+		private final double[] real, zr, zi;
+		private int count;
+		
+		public Row(int capacity) {
+			columns = new int[capacity];
+			iterations = new int[capacity];
+			cycled = new int[capacity];
+			real = new double[capacity];
+			zr = new double[capacity];
+			zi = new double[capacity];
+		}
+		
+		/**
+		 * Adds a point to the row
+		 * @param x pixel column of the point
+		 */
+		private void add(int x) {
+			columns[count++] = x;
+		}
+	}
+}
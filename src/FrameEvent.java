@@ -0,0 +1,89 @@
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a frame drawn by a FractalRenderer, with the same measurements as its RenderStats.
+ * Recorded with java -XX:StartFlightRecording=filename=render.jfr, the events are listed by jfr print --events fractals.Frame render.jfr
+ */
+@Name("fractals.Frame")
+@Label("Frame")
+@Category("Fractals")
+@Description("A frame drawn by a fractal renderer")
+public class FrameEvent extends Event {
+	@Label("Fractal")
+	String fractal;
+
+	@Label("Width")
+	int width;
+
+	@Label("Height")
+	int height;
+
+	@Label("Max Iterations")
+	int maxIterations;
+
+	@Label("Arithmetic")
+	String arithmetic;
+
+	@Label("Render Mode")
+	String renderMode;
+
+	@Label("Finished")
+	@Description("False if the frame was cancelled")
+	boolean finished;
+
+	@Label("Tiles")
+	long tiles;
+
+	@Label("Tile Time")
+	@Description("Time spent drawing tiles, added up over every render thread")
+	@Timespan(Timespan.NANOSECONDS)
+	long tileTime;
+
+	@Label("Longest Tile")
+	@Timespan(Timespan.NANOSECONDS)
+	long longestTile;
+
+	@Label("Computed Pixels")
+	long computedPixels;
+
+	@Label("Filled Pixels")
+	long filledPixels;
+
+	@Label("Iterations")
+	long iterations;
+
+	@Label("Pixels Per Second")
+	double pixelsPerSecond;
+
+	@Label("Interior Share")
+	@Percentage
+	double interiorShare;
+
+	@Label("Utilisation")
+	@Description("Tile time as a fraction of the frame time of every render thread")
+	@Percentage
+	double utilisation;
+
+	/**
+	 * Fills in the fields of the event from the measurements of its frame
+	 * @param stats measurements of the frame
+	 */
+	void set(RenderStats stats) {
+		fractal = stats.getType().name();
+		width = stats.getWidth();
+		height = stats.getHeight();
+		maxIterations = stats.getMaxIterations();
+		arithmetic = stats.getArithmetic().name();
+		renderMode = stats.getRenderMode().name();
+		finished = stats.isFinished();
+		tiles = stats.getTiles();
+		tileTime = stats.getTileNanos();
+		longestTile = stats.getLongestTileNanos();
+		computedPixels = stats.getComputedPixels();
+		filledPixels = stats.getFilledPixels();
+		iterations = stats.getIterations();
+		pixelsPerSecond = stats.getPixelsPerSecond();
+		interiorShare = stats.getInteriorShare();
+		utilisation = stats.getUtilisation();
+	}
+}
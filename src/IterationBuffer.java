@@ -0,0 +1,234 @@
+import java.awt.Rectangle;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Escape time state of every pixel of a frame: how many iterations it took and the final value of z.
+ * Every pixel was iterated up to the same limit, a pixel which reached the limit keeps z at the limit
+ * so it can be iterated further if the limit is raised.
+ * The smooth iteration count of every pixel is kept as well, the frame is coloured from it alone
+ */
+public class IterationBuffer {
+	
+	/**
+	 * Smooth iteration count of pixels which did not escape
+	 */
+	public static final float NOT_ESCAPED = -1;
+	
+	private final int width, height;
+	private final int[] iterations;
+	private final double[] zr, zi;
+	private final float[] smooth;
+	private int limit;
+
+	/**
+	 * Constructor for IterationBuffer
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 * @param limit max iterations the pixels are iterated up to
+	 */
+	public IterationBuffer(int width, int height, int limit) {
+		this.width = width;
+		this.height = height;
+		this.limit = limit;
+		iterations = new int[width * height];
+		zr = new double[width * height];
+		zi = new double[width * height];
+		smooth = new float[width * height];
+	}
+
+	/**
+	 * Stores the state of a pixel
+	 * @param index index of the pixel
+	 * @param iterations number of iterations, EscapeTime.INSIDE if the pixel never escapes
+	 * @param zr real part of the final z
+	 * @param zi imaginary part of the final z
+	 */
+	public void set(int index, int iterations, double zr, double zi) {
+		this.iterations[index] = iterations;
+		this.zr[index] = zr;
+		this.zi[index] = zi;
+	}
+
+	/**
+	 * Stores that a pixel reached the limit without its final z being known,
+	 * it is iterated from the start if the limit is raised
+	 * @param index index of the pixel
+	 * @param iterations the limit, or EscapeTime.INSIDE if the pixel never escapes
+	 */
+	public void setUnknown(int index, int iterations) {
+		set(index, iterations, Double.NaN, Double.NaN);
+	}
+
+	/**
+	 * Checks if the final z of a pixel is known
+	 * @param index index of the pixel
+	 * @return true if z was stored
+	 */
+	public boolean hasState(int index) {
+		return !Double.isNaN(zr[index]);
+	}
+
+	/**
+	 * Works out the smooth iteration count of a pixel from its state
+	 * @param index index of the pixel
+	 * @param maxIterations max iterations of the frame, pixels which reached it did not escape
+	 */
+	public void updateSmooth(int index, int maxIterations) {
+		int count = iterations[index];
+		if (count >= maxIterations) {
+			smooth[index] = NOT_ESCAPED;
+		} else {
+			smooth[index] = (float) EscapeTime.smooth(count, zr[index]*zr[index] + zi[index]*zi[index]);
+		}
+	}
+	
+	/**
+	 * Sets the smooth iteration count of a run of pixels to the same value
+	 * @param from index of the first pixel
+	 * @param to index after the last pixel
+	 * @param smooth smooth iteration count
+	 */
+	public void fillSmooth(int from, int to, float smooth) {
+		Arrays.fill(this.smooth, from, to, smooth);
+	}
+	
+	/**
+	 * Copies the state of part of another buffer of the same size which is moved by whole pixels
+	 * @param other buffer to copy from
+	 * @param region part of this buffer to copy into
+	 * @param dx pixel (x, y) of this buffer is pixel (x + dx, y + dy) of the other buffer
+	 * @param dy pixel (x, y) of this buffer is pixel (x + dx, y + dy) of the other buffer
+	 */
+	public void copyFrom(IterationBuffer other, Rectangle region, int dx, int dy) {
+		for (int y = region.y; y < region.y + region.height; y++) {
+			int from = (y + dy) * width + region.x + dx;
+			int to = y * width + region.x;
+			System.arraycopy(other.iterations, from, iterations, to, region.width);
+			System.arraycopy(other.zr, from, zr, to, region.width);
+			System.arraycopy(other.zi, from, zi, to, region.width);
+			System.arraycopy(other.smooth, from, smooth, to, region.width);
+		}
+	}
+
+	/**
+	 * Copies the state of one pixel of another buffer
+	 * @param other buffer to copy from
+	 * @param from index of the pixel in the other buffer
+	 * @param to index of the pixel in this buffer
+	 */
+	public void copy(IterationBuffer other, int from, int to) {
+		iterations[to] = other.iterations[from];
+		zr[to] = other.zr[from];
+		zi[to] = other.zi[from];
+		smooth[to] = other.smooth[from];
+	}
+
+	/**
+	 * Lowers the limit of part of the buffer. Pixels which escaped after the new limit, or reached
+	 * the old one, only keep that they reached the new limit
+	 * @param region part of the buffer to lower
+	 * @param limit new limit, lower than the current one
+	 */
+	public void lowerLimit(Rectangle region, int limit) {
+		for (int y = region.y; y < region.y + region.height; y++) {
+			for (int i = y * width + region.x; i < y * width + region.x + region.width; i++) {
+				if (iterations[i] >= limit && iterations[i] != EscapeTime.INSIDE) {
+					setUnknown(i, limit);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of iterations of a pixel
+	 * @param index index of the pixel
+	 * @return number of iterations
+	 */
+	public int getIterations(int index) {
+		return iterations[index];
+	}
+
+	/**
+	 * Gets the real part of the final z of a pixel
+	 * @param index index of the pixel
+	 * @return real part of z
+	 */
+	public double getZr(int index) {
+		return zr[index];
+	}
+
+	/**
+	 * Gets the imaginary part of the final z of a pixel
+	 * @param index index of the pixel
+	 * @return imaginary part of z
+	 */
+	public double getZi(int index) {
+		return zi[index];
+	}
+
+	/**
+	 * Gets the smooth iteration count of a pixel
+	 * @param index index of the pixel
+	 * @return smooth iteration count, NOT_ESCAPED if the pixel did not escape
+	 */
+	public float getSmooth(int index) {
+		return smooth[index];
+	}
+
+	/**
+	 * Copies the smooth iteration counts of consecutive pixels into a buffer
+	 * @param index index of the first pixel
+	 * @param length number of pixels
+	 * @param target buffer to copy to, from its position which is moved past the copied counts
+	 */
+	public void getSmooth(int index, int length, FloatBuffer target) {
+		target.put(smooth, index, length);
+	}
+
+	/**
+	 * Counts the pixels which did not escape
+	 * @return number of pixels whose smooth iteration count is NOT_ESCAPED
+	 */
+	public int countNotEscaped() {
+		int count = 0;
+		for (float s : smooth) {
+			if (s == NOT_ESCAPED) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Getter for limit
+	 * @return max iterations the pixels were iterated up to
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Setter for limit, once every pixel which reached the old limit has been iterated up to the new one
+	 * @param limit max iterations the pixels are iterated up to
+	 */
+	public void setLimit(int limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 * Getter for width
+	 * @return width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter for height
+	 * @return height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+}
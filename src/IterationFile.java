@@ -0,0 +1,348 @@
+import java.awt.Rectangle;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Smooth iteration counts of a frame kept in a memory-mapped file instead of on the heap, for frames
+ * too large for arrays or for memory. The file starts with a header holding the fractal, its size, exact edges,
+ * max iterations, c of the Juliaset and which tiles are finished, followed by the counts of one square tile
+ * after another. Tiles at the right and bottom edges take as much space as the others.
+ * Tiles are written and read straight through the mapping, and a file can be opened again to carry on
+ * drawing its unfinished tiles or to colour it again without iterating anything.
+ * The header is big-endian as written by DataOutputStream, the counts are little-endian whatever machine
+ * wrote them, which is the native order of most machines so they are read without swapping bytes
+ * <pre>
+ * int     magic "FRIT"
+ * int     version
+ * int     type, 0 for the Mandelbrot set and 1 for the Juliaset
+ * int     width, height, max iterations, tile size
+ * double  cr, ci
+ * UTF     xMin, xMax, yMin, yMax as decimal strings
+ * byte[]  1 for each finished tile, row by row
+ * ...     padding up to a multiple of 4096 bytes
+ * float[] smooth iteration counts of each tile, row by row, IterationBuffer.NOT_ESCAPED inside the set, little-endian
+ * </pre>
+ */
+public class IterationFile implements Closeable {
+	/** Width and height of the tiles of a new file */
+	public static final int TILE_SIZE = 256;
+	private static final int MAGIC = 0x46524954, VERSION = 1;
+	private static final int PAGE = 4096;
+	//Longest header before the tile table, four edges of up to 65535 bytes each
+	private static final int MAX_HEADER = 1 << 19;
+	//Each mapping holds a whole number of tiles, and stays under the 2 GB a MappedByteBuffer can hold
+	private static final long MAX_MAPPING = 1L << 30;
+
+	private final FileChannel channel;
+	private final RenderJob.Type type;
+	private final int width, height, maxIterations, tileSize, tilesAcross, tilesDown, tilesPerMapping;
+	private final double cr, ci;
+	private final BigDecimal xMin, xMax, yMin, yMax;
+	private final MappedByteBuffer header;
+	private final int doneOffset;
+	private final MappedByteBuffer[] tiles;
+
+	private IterationFile(FileChannel channel, RenderJob.Type type, int width, int height, BigDecimal xMin, BigDecimal xMax,
+			BigDecimal yMin, BigDecimal yMax, int maxIterations, double cr, double ci, int tileSize, int doneOffset) throws IOException {
+		this.channel = channel;
+		this.type = type;
+		this.width = width;
+		this.height = height;
+		this.xMin = xMin;
+		this.xMax = xMax;
+		this.yMin = yMin;
+		this.yMax = yMax;
+		this.maxIterations = maxIterations;
+		this.cr = cr;
+		this.ci = ci;
+		this.tileSize = tileSize;
+		this.doneOffset = doneOffset;
+		tilesAcross = (width + tileSize - 1) / tileSize;
+		tilesDown = (height + tileSize - 1) / tileSize;
+		long tileBytes = (long) tileSize * tileSize * Float.BYTES;
+		long headerSize = (doneOffset + (long) tilesAcross * tilesDown + PAGE - 1) / PAGE * PAGE;
+		if (headerSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many tiles: " + tilesAcross + "x" + tilesDown);
+		}
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize);
+		tilesPerMapping = (int) Math.max(1, MAX_MAPPING / tileBytes);
+		long tileCount = getTileCount();
+		tiles = new MappedByteBuffer[(int) ((tileCount + tilesPerMapping - 1) / tilesPerMapping)];
+		for (int i = 0; i < tiles.length; i++) {
+			long count = Math.min(tilesPerMapping, tileCount - (long) i * tilesPerMapping);
+			tiles[i] = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + i * tilesPerMapping * tileBytes, count * tileBytes);
+			tiles[i].order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	/**
+	 * Makes a new file, replacing any file already there. No tile is finished yet
+	 * @param path file to make
+	 * @param type which fractal is drawn
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 * @param xMin real part of the left edge
+	 * @param xMax real part of the right edge
+	 * @param yMin negated imaginary part of the top edge
+	 * @param yMax negated imaginary part of the bottom edge
+	 * @param maxIterations number of iterations
+	 * @param cr real part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param ci imaginary part of c of the Juliaset, not used for the Mandelbrot set
+	 * @return file
+	 */
+	public static IterationFile create(Path path, RenderJob.Type type, int width, int height, BigDecimal xMin, BigDecimal xMax,
+			BigDecimal yMin, BigDecimal yMax, int maxIterations, double cr, double ci) throws IOException {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("Size must be positive: " + width + "x" + height);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(type.ordinal());
+		out.writeInt(width);
+		out.writeInt(height);
+		out.writeInt(maxIterations);
+		out.writeInt(TILE_SIZE);
+		out.writeDouble(cr);
+		out.writeDouble(ci);
+		for (BigDecimal edge : new BigDecimal[] {xMin, xMax, yMin, yMax}) {
+			out.writeUTF(edge.toString());
+		}
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			IterationFile file = new IterationFile(channel, type, width, height, xMin, xMax, yMin, yMax, maxIterations, cr, ci, TILE_SIZE, bytes.size());
+			file.header.put(0, bytes.toByteArray());
+			return file;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Opens a file made by create, with the tiles it already has
+	 * @param path file to open
+	 * @return file
+	 * @throws IOException if the file can not be read or is not an iteration file
+	 */
+	public static IterationFile open(Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			ByteBuffer start = ByteBuffer.allocate((int) Math.min(MAX_HEADER, channel.size()));
+			channel.read(start, 0);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(start.array(), 0, start.position()));
+			if (in.readInt() != MAGIC) {
+				throw new IOException(path + " is not an iteration file");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IOException(path + " has version " + version + ", only version " + VERSION + " can be read");
+			}
+			RenderJob.Type type = RenderJob.Type.values()[in.readInt()];
+			int width = in.readInt();
+			int height = in.readInt();
+			int maxIterations = in.readInt();
+			int tileSize = in.readInt();
+			double cr = in.readDouble();
+			double ci = in.readDouble();
+			BigDecimal[] edges = new BigDecimal[4];
+			for (int i = 0; i < edges.length; i++) {
+				edges[i] = new BigDecimal(in.readUTF());
+			}
+			int doneOffset = start.position() - in.available();
+			return new IterationFile(channel, type, width, height, edges[0], edges[1], edges[2], edges[3], maxIterations, cr, ci, tileSize, doneOffset);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e instanceof IOException ? (IOException) e : new IOException(path + " is not a valid iteration file", e);
+		}
+	}
+
+	/**
+	 * Gets the smooth iteration counts of a tile, straight from the mapping
+	 * @param tile index of the tile, row by row
+	 * @return counts of the tile, row by row, tileSize by tileSize
+	 */
+	public FloatBuffer getTile(int tile) {
+		int area = tileSize * tileSize;
+		ByteBuffer mapping = tiles[tile / tilesPerMapping].duplicate();
+		int start = (tile % tilesPerMapping) * area * Float.BYTES;
+		mapping.position(start).limit(start + area * Float.BYTES);
+		return mapping.slice().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+	}
+
+	/**
+	 * Copies the smooth iteration counts of a tile into the mapping
+	 * @param tile index of the tile
+	 * @param counts counts of the pixels of the tile inside the frame, row by row, as wide as its bounds
+	 */
+	public void putTile(int tile, FloatBuffer counts) {
+		Rectangle bounds = getTileBounds(tile);
+		FloatBuffer target = getTile(tile);
+		for (int y = 0; y < bounds.height; y++) {
+			counts.limit(counts.position() + bounds.width);
+			target.position(y * tileSize);
+			target.put(counts);
+		}
+	}
+
+	/**
+	 * Gets the pixels of a tile, tiles at the right and bottom edges are cut off at the edge of the frame
+	 * @param tile index of the tile
+	 * @return bounds of the tile in pixels
+	 */
+	public Rectangle getTileBounds(int tile) {
+		int x = (tile % tilesAcross) * tileSize;
+		int y = (tile / tilesAcross) * tileSize;
+		return new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+	}
+
+	/**
+	 * Works out the exact edges of a tile, which line up with the pixels of the whole frame
+	 * @param tile index of the tile
+	 * @return xMin, xMax, yMin, yMax of the tile
+	 */
+	public BigDecimal[] getTileCoordinates(int tile) {
+		Rectangle bounds = getTileBounds(tile);
+		return new BigDecimal[] {FractalRenderer.edge(xMin, xMax, bounds.x, width), FractalRenderer.edge(xMin, xMax, bounds.x + bounds.width, width),
+				FractalRenderer.edge(yMin, yMax, bounds.y, height), FractalRenderer.edge(yMin, yMax, bounds.y + bounds.height, height)};
+	}
+
+	/**
+	 * Reads the smooth iteration counts of a row of pixels
+	 * @param y pixel row
+	 * @param row array to fill, at least width long
+	 */
+	public void getRow(int y, float[] row) {
+		int tileRow = y / tileSize;
+		int offset = (y % tileSize) * tileSize;
+		for (int tx = 0; tx < tilesAcross; tx++) {
+			int x = tx * tileSize;
+			getTile(tileRow * tilesAcross + tx).get(offset, row, x, Math.min(tileSize, width - x));
+		}
+	}
+
+	/**
+	 * Checks if a tile was finished
+	 * @param tile index of the tile
+	 * @return true if it was finished
+	 */
+	public boolean isDone(int tile) {
+		return header.get(doneOffset + tile) != 0;
+	}
+
+	/**
+	 * Marks a tile as finished, its counts should be written first
+	 * @param tile index of the tile
+	 */
+	public void setDone(int tile) {
+		header.put(doneOffset + tile, (byte) 1);
+	}
+
+	/**
+	 * Writes every change to the disk
+	 */
+	public void force() {
+		for (MappedByteBuffer mapping : tiles) {
+			mapping.force();
+		}
+		header.force();
+	}
+
+	/**
+	 * Writes every change to the disk and closes the file
+	 */
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+	/**
+	 * Gets the number of tiles
+	 * @return tiles across times tiles down
+	 */
+	public int getTileCount() {
+		return tilesAcross * tilesDown;
+	}
+
+	/**
+	 * Getter for tiles across
+	 * @return number of tiles in a row
+	 */
+	public int getTilesAcross() {
+		return tilesAcross;
+	}
+
+	/**
+	 * Getter for tile size
+	 * @return width and height of a tile in pixels
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	/**
+	 * Getter for type
+	 * @return which fractal is drawn
+	 */
+	public RenderJob.Type getType() {
+		return type;
+	}
+
+	/**
+	 * Getter for width
+	 * @return width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter for height
+	 * @return height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Getter for max iterations
+	 * @return max iterations
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * Gets the exact edges
+	 * @return xMin, xMax, yMin, yMax
+	 */
+	public BigDecimal[] getExactComplexCoordinates() {
+		return new BigDecimal[] {xMin, xMax, yMin, yMax};
+	}
+
+	/**
+	 * Getter for the real part of c of the Juliaset
+	 * @return real part of c
+	 */
+	public double getCr() {
+		return cr;
+	}
+
+	/**
+	 * Getter for the imaginary part of c of the Juliaset
+	 * @return imaginary part of c
+	 */
+	public double getCi() {
+		return ci;
+	}
+}
@@ -0,0 +1,80 @@
+import java.math.BigDecimal;
+
+/**
+ * Measures the cost per iteration of each arithmetic a frame can be drawn in, by iterating the same
+ * row of points of the Mandelbrot set with the double, double-double and perturbation kernels, and with the
+ * vector row kernel in doubles and floats if jdk.incubator.vector is available.
+ * Run with java --add-modules jdk.incubator.vector KernelBenchmark [max iterations] [rounds]
+ */
+public class KernelBenchmark {
+	private static final int POINTS = 2000;
+	private static final double LEFT = -0.7475, RIGHT = -0.7465, IMAGINARY = 0.1;
+
+	public static void main(String[] args) {
+		int maxIterations = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		EscapeTime kernel = new EscapeTime(maxIterations);
+		BigDecimal reference = new BigDecimal((LEFT + RIGHT) / 2);
+		ReferenceOrbit orbit = ReferenceOrbit.mandelbrot(reference, new BigDecimal(IMAGINARY), maxIterations, 30, () -> false);
+		double step = (RIGHT - LEFT) / POINTS;
+		double[] real = new double[POINTS];
+		for (int i = 0; i < POINTS; i++) {
+			real[i] = LEFT + i*step;
+		}
+		int[] rowIterations = new int[POINTS];
+		double[] zr = new double[POINTS], zi = new double[POINTS];
+
+		double[] results = new double[5];
+		for (int round = 0; round < rounds; round++) {
+			//The first half of the rounds only warm up the JIT
+			boolean measure = round >= rounds / 2;
+			//The Juliaset with z starting at c is the Mandelbrot set without interior or periodicity checks,
+			//which the other two kernels do not have either
+			long iterations = 0;
+			long start = System.nanoTime();
+			for (int i = 0; i < POINTS; i++) {
+				iterations += kernel.julia(LEFT + i*step, IMAGINARY, LEFT + i*step, IMAGINARY);
+			}
+			results[0] += measure ? (double) (System.nanoTime() - start) / iterations : 0;
+
+			iterations = 0;
+			start = System.nanoTime();
+			for (int i = 0; i < POINTS; i++) {
+				iterations += kernel.mandelbrotDoubleDouble(LEFT + i*step, 0, IMAGINARY, 0);
+			}
+			results[1] += measure ? (double) (System.nanoTime() - start) / iterations : 0;
+
+			iterations = 0;
+			start = System.nanoTime();
+			for (int i = 0; i < POINTS; i++) {
+				iterations += kernel.mandelbrot(orbit, LEFT + i*step - reference.doubleValue(), 0);
+			}
+			results[2] += measure ? (double) (System.nanoTime() - start) / iterations : 0;
+
+			if (RowKernel.VECTOR != null) {
+				iterations = 0;
+				start = System.nanoTime();
+				RowKernel.VECTOR.mandelbrot(real, IMAGINARY, POINTS, maxIterations, false, 0, rowIterations, null, zr, zi);
+				for (int i = 0; i < POINTS; i++) {
+					iterations += rowIterations[i];
+				}
+				results[3] += measure ? (double) (System.nanoTime() - start) / iterations : 0;
+
+				iterations = 0;
+				start = System.nanoTime();
+				RowKernel.VECTOR.mandelbrotFloat(real, IMAGINARY, POINTS, maxIterations, false, false, rowIterations, null, zr, zi);
+				for (int i = 0; i < POINTS; i++) {
+					iterations += rowIterations[i];
+				}
+				results[4] += measure ? (double) (System.nanoTime() - start) / iterations : 0;
+			}
+		}
+
+		int measured = rounds - rounds / 2;
+		String[] names = {"double", "double-double", "perturbation", "vector", "vector float"};
+		for (int i = 0; i < (RowKernel.VECTOR != null ? 5 : 3); i++) {
+			double perIteration = results[i] / measured;
+			System.out.printf("%-14s %6.2f ns/iteration  %5.2fx double%n", names[i], perIteration, perIteration / (results[0] / measured));
+		}
+	}
+}
@@ -0,0 +1,90 @@
+import java.awt.Color;
+
+/**
+ * Colour palette used to colour the escaped points of a fractal.
+ * The colours of one cycle of the palette are worked out once into a lookup table,
+ * colouring a point is then only a table lookup and a linear interpolation
+ */
+public class Palette {
+	private static final int SIZE = 4096;
+
+	/**
+	 * Full saturation hue ramp, the same colours as Color.HSBtoRGB(hue, 1, 1)
+	 */
+	public static final Palette HUE = hue();
+
+	/**
+	 * Black to red to yellow to white and back
+	 */
+	public static final Palette FIRE = new Palette(0x000000, 0x8C0000, 0xFF5A00, 0xFFDC00, 0xFFFFFF, 0xFFDC00, 0xFF5A00, 0x8C0000);
+
+	/**
+	 * Black to white and back
+	 */
+	public static final Palette GREYSCALE = new Palette(0x000000, 0xFFFFFF);
+
+	private final int[] table;
+
+	/**
+	 * Constructor for a Palette which blends evenly between the given colours.
+	 * The last colour blends back into the first so the palette can be repeated
+	 * @param colours RGB colours of one cycle of the palette
+	 */
+	public Palette(int... colours) {
+		if (colours.length == 0) {
+			throw new IllegalArgumentException("A palette needs at least one colour");
+		}
+		table = new int[SIZE + 1];
+		for (int i = 0; i < SIZE; i++) {
+			double position = (double) i * colours.length / SIZE;
+			int stop = (int) position;
+			table[i] = blend(colours[stop], colours[(stop + 1) % colours.length], position - stop);
+		}
+		table[SIZE] = table[0];
+	}
+
+	/**
+	 * Makes the hue palette by sampling Color.HSBtoRGB once per table entry
+	 * @return hue palette
+	 */
+	private static Palette hue() {
+		int[] colours = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			colours[i] = Color.HSBtoRGB((float) i / SIZE, 1, 1) & 0xFFFFFF;
+		}
+		return new Palette(colours);
+	}
+
+	/**
+	 * Gets the colour of an escaped point
+	 * @param smooth smooth iteration count of the point
+	 * @param density number of iterations for one cycle of the palette
+	 * @param offset position in the palette, as a fraction of a cycle, which is subtracted from every point
+	 * @return RGB colour
+	 */
+	public int colour(double smooth, double density, double offset) {
+		double position = smooth / density - offset;
+		position = (position - Math.floor(position)) * SIZE;
+		int whole = (int) position;
+		//Rounding can push position up to SIZE, which wraps back to the start of the table
+		int index = whole & (SIZE - 1);
+		return blend(table[index], table[index + 1], position - whole);
+	}
+
+	/**
+	 * Linearly blends two RGB colours
+	 * @param from first colour
+	 * @param to second colour
+	 * @param amount how far to blend towards the second colour, from 0 to 1
+	 * @return blended colour
+	 */
+	private static int blend(int from, int to, double amount) {
+		int r = (from >> 16) & 0xFF;
+		int g = (from >> 8) & 0xFF;
+		int b = from & 0xFF;
+		r = (int) (r + (((to >> 16) & 0xFF) - r) * amount + 0.5);
+		g = (int) (g + (((to >> 8) & 0xFF) - g) * amount + 0.5);
+		b = (int) (b + ((to & 0xFF) - b) * amount + 0.5);
+		return (r << 16) | (g << 8) | b;
+	}
+}
@@ -0,0 +1,172 @@
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes an 8 bit RGB PNG image a band of rows at a time, so the whole image never has to be in memory.
+ * Each row is filtered with the sub filter and deflated as it is written, and the deflate stream is flushed
+ * at the end of every band. Compressed data is written in IDAT chunks of at most 64 KB
+ */
+public class PngWriter implements Closeable {
+	private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+	private static final int BIT_DEPTH = 8, COLOUR_TYPE_RGB = 2, FILTER_SUB = 1;
+	private static final int CHUNK_SIZE = 1 << 16;
+	private final DataOutputStream out;
+	private final int width, height;
+	private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+	private final CRC32 crc = new CRC32();
+	private final int[] rgb;
+	private final byte[] row, chunk = new byte[CHUNK_SIZE];
+	private int chunkLength, rows;
+	private boolean closed;
+
+	/**
+	 * Constructor for PngWriter, writes the header of the image straight away
+	 * @param out stream to write to, closed when the writer is closed
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 */
+	public PngWriter(OutputStream out, int width, int height) throws IOException {
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("Image size must be positive: " + width + "x" + height);
+		}
+		this.out = new DataOutputStream(new BufferedOutputStream(out, CHUNK_SIZE));
+		this.width = width;
+		this.height = height;
+		rgb = new int[width];
+		row = new byte[1 + 3*width];
+		this.out.write(SIGNATURE);
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(header);
+		data.writeInt(width);
+		data.writeInt(height);
+		data.writeByte(BIT_DEPTH);
+		data.writeByte(COLOUR_TYPE_RGB);
+		//Deflate compression, adaptive filtering, no interlacing
+		data.writeByte(0);
+		data.writeByte(0);
+		data.writeByte(0);
+		writeChunk("IHDR", header.toByteArray(), header.size());
+	}
+
+	/**
+	 * Writes the rows of a band, which go below the rows already written
+	 * @param band image as wide as this image, all of its rows are written
+	 */
+	public void writeRows(BufferedImage band) throws IOException {
+		if (band.getWidth() != width) {
+			throw new IllegalArgumentException("Band is " + band.getWidth() + " pixels wide, the image is " + width);
+		}
+		if (rows + band.getHeight() > height) {
+			throw new IllegalStateException("Image only has " + height + " rows");
+		}
+		for (int y = 0; y < band.getHeight(); y++) {
+			band.getRGB(0, y, width, 1, rgb, 0, width);
+			row[0] = FILTER_SUB;
+			int left = 0;
+			for (int x = 0, i = 1; x < width; x++, i += 3) {
+				int pixel = rgb[x];
+				row[i] = (byte) ((pixel >> 16) - (left >> 16));
+				row[i + 1] = (byte) ((pixel >> 8) - (left >> 8));
+				row[i + 2] = (byte) (pixel - left);
+				left = pixel;
+			}
+			deflater.setInput(row);
+			while (!deflater.needsInput()) {
+				deflate(Deflater.NO_FLUSH);
+			}
+		}
+		rows += band.getHeight();
+		//Flushing at the end of the band keeps the compressed data of a band from waiting on the next one
+		while (deflate(Deflater.SYNC_FLUSH)) {
+			//The deflater filled the chunk, so it may have more to flush
+		}
+		flushChunk();
+	}
+
+	/**
+	 * Finishes the image and closes the stream
+	 * @throws IOException if writing fails, or not every row of the image was written
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (rows != height) {
+				throw new IOException("Only " + rows + " of " + height + " rows were written");
+			}
+			deflater.finish();
+			while (!deflater.finished()) {
+				deflate(Deflater.NO_FLUSH);
+			}
+			flushChunk();
+			writeChunk("IEND", chunk, 0);
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+
+	/**
+	 * Closes the stream without finishing the image, for when it is given up part way through.
+	 * Closing the writer afterwards does nothing
+	 */
+	public void abort() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			deflater.end();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Deflates into the chunk being filled, the chunk is written once it is full
+	 * @param flush flush mode of the deflater
+	 * @return true if the deflater filled all the space left in the chunk
+	 */
+	private boolean deflate(int flush) throws IOException {
+		int space = CHUNK_SIZE - chunkLength;
+		int length = deflater.deflate(chunk, chunkLength, space, flush);
+		chunkLength += length;
+		if (chunkLength == CHUNK_SIZE) {
+			flushChunk();
+		}
+		return length == space;
+	}
+
+	/**
+	 * Writes the compressed data waiting in the chunk being filled as an IDAT chunk
+	 */
+	private void flushChunk() throws IOException {
+		if (chunkLength > 0) {
+			writeChunk("IDAT", chunk, chunkLength);
+			chunkLength = 0;
+		}
+	}
+
+	/**
+	 * Writes a chunk with its length and CRC
+	 * @param type four letter type of the chunk
+	 * @param data data of the chunk
+	 * @param length length of the data
+	 */
+	private void writeChunk(String type, byte[] data, int length) throws IOException {
+		byte[] name = type.getBytes(StandardCharsets.US_ASCII);
+		crc.reset();
+		crc.update(name);
+		crc.update(data, 0, length);
+		out.writeInt(length);
+		out.write(name);
+		out.write(data, 0, length);
+		out.writeInt((int) crc.getValue());
+	}
+}
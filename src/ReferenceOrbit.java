@@ -0,0 +1,146 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Orbit of one reference point of the Mandelbrot set worked out in arbitrary precision, z = z^2 + c from z = 0.
+ * The points of the orbit are kept as doubles, every pixel of a deep zoom is then iterated in doubles
+ * as a small difference from this orbit, see EscapeTime.mandelbrot(ReferenceOrbit, double, double)
+ */
+public class ReferenceOrbit {
+	private static final BigDecimal FOUR = BigDecimal.valueOf(4);
+	private final BigDecimal cr, ci;
+	private final double[] zr, zi;
+	private final int length, maxIterations, precision;
+
+	/**
+	 * Constructor for ReferenceOrbit
+	 */
+	private ReferenceOrbit(BigDecimal cr, BigDecimal ci, double[] zr, double[] zi, int length, int maxIterations, int precision) {
+		this.cr = cr;
+		this.ci = ci;
+		this.zr = zr;
+		this.zi = zi;
+		this.length = length;
+		this.maxIterations = maxIterations;
+		this.precision = precision;
+	}
+
+	/**
+	 * Works out the orbit of a point of the Mandelbrot set, until it escapes or max iterations is reached
+	 * @param cr real part of the point
+	 * @param ci imaginary part of the point
+	 * @param maxIterations max iterations
+	 * @param precision number of significant digits the orbit is worked out with
+	 * @param cancelled checked every iteration, the orbit is given up on once it returns true
+	 * @return orbit, or null if it was cancelled
+	 */
+	public static ReferenceOrbit mandelbrot(BigDecimal cr, BigDecimal ci, int maxIterations, int precision, BooleanSupplier cancelled) {
+		MathContext mc = new MathContext(precision);
+		double[] zr = new double[maxIterations + 2];
+		double[] zi = new double[maxIterations + 2];
+		BigDecimal r = BigDecimal.ZERO;
+		BigDecimal i = BigDecimal.ZERO;
+		int length = 1;
+		while (length < zr.length) {
+			if (cancelled.getAsBoolean()) {
+				return null;
+			}
+			BigDecimal r2 = r.multiply(r, mc);
+			BigDecimal i2 = i.multiply(i, mc);
+			if (r2.add(i2).compareTo(FOUR) >= 0) {
+				break;
+			}
+			i = r.multiply(i, mc).multiply(BigDecimal.valueOf(2)).add(ci, mc);
+			r = r2.subtract(i2).add(cr, mc);
+			zr[length] = r.doubleValue();
+			zi[length] = i.doubleValue();
+			length++;
+		}
+		return new ReferenceOrbit(cr, ci, zr, zi, length, maxIterations, precision);
+	}
+
+	/**
+	 * Works out how many significant digits are needed for the orbit of a frame, enough to tell apart
+	 * points much closer together than its pixels
+	 * @param pixelSize distance between two pixels of the frame
+	 * @return number of digits
+	 */
+	public static int precisionFor(double pixelSize) {
+		return Math.max(20, 12 + (int) Math.ceil(-Math.log10(Math.max(pixelSize, Double.MIN_VALUE))));
+	}
+
+	/**
+	 * Checks if the orbit can be used for a frame, the frame must not need more iterations or more precision,
+	 * and the reference point must be inside it so the differences from it stay small
+	 * @param job frame to check
+	 * @return true if the orbit can be used
+	 */
+	public boolean covers(RenderJob job) {
+		if (maxIterations < job.getMaxIterations() && length == maxIterations + 2) {
+			return false;
+		}
+		if (precision < precisionFor(job.getPixelSize())) {
+			return false;
+		}
+		BigDecimal y = ci.negate();
+		return cr.compareTo(job.getExactxMin()) >= 0 && cr.compareTo(job.getExactxMax()) <= 0
+				&& y.compareTo(job.getExactyMin()) >= 0 && y.compareTo(job.getExactyMax()) <= 0;
+	}
+
+	/**
+	 * Gets the real parts of the points of the orbit, the first point is z = 0. The array must not be changed
+	 * @return real parts, only the first getLength() are used
+	 */
+	public double[] getZr() {
+		return zr;
+	}
+
+	/**
+	 * Gets the imaginary parts of the points of the orbit, the first point is z = 0. The array must not be changed
+	 * @return imaginary parts, only the first getLength() are used
+	 */
+	public double[] getZi() {
+		return zi;
+	}
+
+	/**
+	 * Gets the number of points of the orbit
+	 * @return length
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Getter for the real part of the reference point
+	 * @return real part of c
+	 */
+	public BigDecimal getCr() {
+		return cr;
+	}
+
+	/**
+	 * Getter for the imaginary part of the reference point
+	 * @return imaginary part of c
+	 */
+	public BigDecimal getCi() {
+		return ci;
+	}
+
+	/**
+	 * Getter for max iterations
+	 * @return max iterations the orbit was worked out for
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * Getter for precision
+	 * @return number of significant digits
+	 */
+	public int getPrecision() {
+		return precision;
+	}
+}
@@ -0,0 +1,145 @@
+import java.awt.Rectangle;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Draws the unfinished tiles of an iteration file on RenderWorker processes, see RenderWorker for the protocol.
+ * Each worker has a thread of its own which takes tiles from a shared queue, so faster workers draw more tiles,
+ * and keeps two tiles in flight so the worker starts on the next tile while the last one crosses the network.
+ * The counts of each tile are written into the mapping of the file and the tile is marked finished as it comes back.
+ * A worker which can not be reached, closes its connection, answers wrongly or sends no answer for the tile timeout
+ * is dropped and its tiles are handed out to the other workers again. The timeout is read from the
+ * fractal.workerTimeout system property in seconds, 600 by default, and should be longer than the slowest tile takes.
+ * The file is only left unfinished if every worker was dropped, drawing it again carries on where it stopped
+ */
+public class RenderCoordinator {
+	private static final int IN_FLIGHT = 2;
+	private static final int CONNECT_TIMEOUT = 10000, POLL_INTERVAL = 100;
+	//A worker which hangs without closing its connection would otherwise be waited for forever
+	private static final int TILE_TIMEOUT = Integer.getInteger("fractal.workerTimeout", 600) * 1000;
+	private final List<InetSocketAddress> workers;
+
+	/**
+	 * Constructor for RenderCoordinator
+	 * @param workers addresses of the workers
+	 */
+	public RenderCoordinator(List<InetSocketAddress> workers) {
+		this.workers = workers;
+	}
+
+	/**
+	 * Reads the addresses of workers
+	 * @param list host:port separated by commas, the port can be left out for RenderWorker.DEFAULT_PORT
+	 * @return addresses
+	 */
+	public static List<InetSocketAddress> parseWorkers(String list) {
+		List<InetSocketAddress> workers = new ArrayList<>();
+		for (String worker : list.split(",")) {
+			int colon = worker.lastIndexOf(':');
+			try {
+				workers.add(colon < 0 ? new InetSocketAddress(worker.trim(), RenderWorker.DEFAULT_PORT)
+						: new InetSocketAddress(worker.substring(0, colon).trim(), Integer.parseInt(worker.substring(colon + 1).trim())));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Worker is not host:port: " + worker);
+			}
+		}
+		return workers;
+	}
+
+	/**
+	 * Draws every unfinished tile of a file on the workers and waits until they are all finished or every worker was dropped
+	 * @param file file to draw
+	 * @return true if every tile is finished
+	 */
+	public boolean render(IterationFile file) throws InterruptedException {
+		BlockingQueue<Integer> tiles = new LinkedBlockingQueue<>();
+		for (int tile = 0; tile < file.getTileCount(); tile++) {
+			if (!file.isDone(tile)) {
+				tiles.add(tile);
+			}
+		}
+		AtomicInteger remaining = new AtomicInteger(tiles.size());
+		List<Thread> threads = new ArrayList<>();
+		for (InetSocketAddress worker : workers) {
+			Thread thread = new Thread(() -> serve(worker, file, tiles, remaining), "coordinator-" + worker);
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return remaining.get() == 0;
+	}
+
+	/**
+	 * Hands tiles to one worker until every tile is finished, or the worker is dropped
+	 * @param worker address of the worker
+	 * @param file file to draw
+	 * @param tiles tiles which were not handed out yet
+	 * @param remaining number of tiles which are not finished
+	 */
+	private void serve(InetSocketAddress worker, IterationFile file, BlockingQueue<Integer> tiles, AtomicInteger remaining) {
+		Deque<Integer> sent = new ArrayDeque<>();
+		int drawn = 0;
+		try (Socket socket = new Socket()) {
+			socket.connect(worker, CONNECT_TIMEOUT);
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(TILE_TIMEOUT);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			RenderWorker.writeHello(out);
+			out.flush();
+			RenderWorker.readHello(in);
+			while (remaining.get() > 0) {
+				//Waits for a tile only if none are in flight, tiles dropped by another worker may still come back
+				Integer tile = sent.size() >= IN_FLIGHT ? null
+						: sent.isEmpty() ? tiles.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS) : tiles.poll();
+				if (tile != null) {
+					RenderWorker.writeRequest(out, file, tile);
+					sent.add(tile);
+				} else if (!sent.isEmpty()) {
+					out.flush();
+					readAnswer(in, file, sent.peek());
+					file.setDone(sent.remove());
+					remaining.decrementAndGet();
+					drawn++;
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Worker " + worker + " dropped, " + sent.size() + " tiles handed out again: " + e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			tiles.addAll(sent);
+		}
+		System.out.println("Worker " + worker + " drew " + drawn + " tiles");
+	}
+
+	/**
+	 * Reads the answer to a tile request and writes its counts into the file
+	 * @param in stream from the worker
+	 * @param file file to write to
+	 * @param tile tile the answer should be for
+	 * @throws IOException if the connection fails or the answer is for another tile
+	 */
+	private static void readAnswer(DataInputStream in, IterationFile file, int tile) throws IOException {
+		int answered = in.readInt();
+		if (answered != tile) {
+			throw new IOException("Answer for tile " + answered + " instead of tile " + tile);
+		}
+		Rectangle bounds = file.getTileBounds(tile);
+		byte[] counts = new byte[bounds.width * bounds.height * Float.BYTES];
+		in.readFully(counts);
+		file.putTile(tile, ByteBuffer.wrap(counts).asFloatBuffer());
+	}
+}
@@ -0,0 +1,215 @@
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Thread pool owned by a Fractal which draws its tiles.
+ * Tiles are run on a work-stealing ForkJoinPool, or on virtual threads when the JVM supports them.
+ * Each tile gets a virtual thread of its own, but only as many draw at once as there are render threads.
+ * Whole renders are started from a separate coordinator thread, so waiting for a frame never holds a render thread
+ */
+public class RenderExecutor {
+	private final String name;
+	private final int parallelism;
+	private final ForkJoinPool pool;
+	private final ExecutorService virtualThreads;
+	private final Semaphore permits;
+	private final ThreadLocal<Boolean> drawing = ThreadLocal.withInitial(() -> false);
+	private final ExecutorService coordinator;
+
+	/**
+	 * Constructor for RenderExecutor
+	 * @param name prefix of the names of the threads
+	 * @param parallelism number of render threads
+	 * @param useVirtualThreads true to run tiles on virtual threads, if the JVM has none a warning is printed
+	 * and the tiles run on the pool instead
+	 */
+	public RenderExecutor(String name, int parallelism, boolean useVirtualThreads) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		this.name = name;
+		this.parallelism = parallelism;
+		ExecutorService virtual = useVirtualThreads ? newVirtualThreadExecutor(name + "-render-") : null;
+		if (virtual == null) {
+			if (useVirtualThreads) {
+				System.err.println("Virtual threads need Java 21 or later and this is Java " + Runtime.version().feature()
+						+ ", " + name + " renders on a pool of " + parallelism + " platform threads instead");
+			}
+			AtomicInteger count = new AtomicInteger();
+			pool = new ForkJoinPool(parallelism, p -> {
+				ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				t.setName(name + "-render-" + count.getAndIncrement());
+				t.setDaemon(true);
+				return t;
+			}, null, false);
+		} else {
+			pool = null;
+		}
+		virtualThreads = virtual;
+		permits = new Semaphore(parallelism);
+		coordinator = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, name + "-coordinator");
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * Tries to make an executor which starts a virtual thread per task.
+	 * Done through reflection so the class still runs on JVMs without virtual threads
+	 * @param prefix prefix of the thread names
+	 * @return executor, or null if virtual threads are not available
+	 */
+	private static ExecutorService newVirtualThreadExecutor(String prefix) {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Object builder = ofVirtual.invoke(null);
+			Class<?> builderClass = ofVirtual.getReturnType();
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Runs a whole render on the coordinator thread
+	 * @param render render to run
+	 * @return future of the render
+	 */
+	public Future<?> submit(Runnable render) {
+		return coordinator.submit(render);
+	}
+
+	/**
+	 * Draws every tile and waits until they are all done
+	 * @param tileCount number of tiles
+	 * @param drawTile draws the tile with the given index
+	 */
+	public void invokeTiles(int tileCount, IntConsumer drawTile) {
+		if (tileCount <= 0) {
+			return;
+		}
+		if (pool != null) {
+			TileRange range = new TileRange(0, tileCount, drawTile);
+			//A render thread which starts a nested render draws it itself instead of blocking
+			Thread current = Thread.currentThread();
+			if (current instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) current).getPool() == pool) {
+				range.invoke();
+			} else {
+				pool.invoke(range);
+			}
+		} else if (drawing.get()) {
+			//A tile which starts a nested render draws it itself, waiting for permits it holds itself would never end
+			for (int tile = 0; tile < tileCount; tile++) {
+				drawTile.accept(tile);
+			}
+		} else {
+			//Virtual threads unmount while they wait, so blocking here never uses up a carrier thread
+			List<Future<?>> tiles = new ArrayList<>(tileCount);
+			for (int i = 0; i < tileCount; i++) {
+				int tile = i;
+				tiles.add(virtualThreads.submit(() -> {
+					drawWithPermit(tile, drawTile);
+					return null;
+				}));
+			}
+			try {
+				for (Future<?> tile : tiles) {
+					tile.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				tiles.forEach(tile -> tile.cancel(true));
+			} catch (ExecutionException e) {
+				tiles.forEach(tile -> tile.cancel(true));
+				throw new CompletionException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Draws a tile on a virtual thread once one of the parallelism permits is free
+	 * @param tile index of the tile
+	 * @param drawTile draws the tile with the given index
+	 * @throws InterruptedException if the render was cancelled while waiting for a permit
+	 */
+	private void drawWithPermit(int tile, IntConsumer drawTile) throws InterruptedException {
+		permits.acquire();
+		drawing.set(true);
+		try {
+			drawTile.accept(tile);
+		} finally {
+			drawing.set(false);
+			permits.release();
+		}
+	}
+
+	/**
+	 * Getter for parallelism
+	 * @return number of render threads
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Checks if tiles are drawn on virtual threads
+	 * @return true if virtual threads are used
+	 */
+	public boolean isVirtual() {
+		return virtualThreads != null;
+	}
+
+	/**
+	 * Stops all render threads, renders still running are interrupted
+	 */
+	public void shutdown() {
+		coordinator.shutdownNow();
+		if (pool != null) {
+			pool.shutdownNow();
+		} else {
+			virtualThreads.shutdownNow();
+		}
+		try {
+			coordinator.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return name + "[" + parallelism + (isVirtual() ? " virtual" : "") + " threads]";
+	}
+
+	/**
+	 * Range of tiles which is split in half until a single tile is left, so idle threads can steal the other half
+	 */
+	private static class TileRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int tile1, tile2;
+		private final IntConsumer drawTile;
+
+		public TileRange(int tile1, int tile2, IntConsumer drawTile) {
+			this.tile1 = tile1;
+			this.tile2 = tile2;
+			this.drawTile = drawTile;
+		}
+
+		@Override
+		protected void compute() {
+			if (tile2 - tile1 > 1) {
+				int middle = (tile1 + tile2) >>> 1;
+				invokeAll(new TileRange(tile1, middle, drawTile), new TileRange(middle, tile2, drawTile));
+			} else {
+				drawTile.accept(tile1);
+			}
+		}
+	}
+}
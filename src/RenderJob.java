@@ -0,0 +1,284 @@
+import java.math.BigDecimal;
+
+/**
+ * Everything needed to draw one frame of a fractal, taken when the frame is requested
+ * so later changes to the Fractal do not affect a frame which is already being drawn.
+ * The edges are kept exactly as well as rounded to doubles, for frames zoomed in too far for doubles
+ */
+public class RenderJob {
+
+	/**
+	 * Which fractal is drawn
+	 */
+	public enum Type {
+		MANDELBROT, JULIA
+	}
+
+	private static final double PIXEL_TOLERANCE = 0.01;
+	private final Type type;
+	private final int width, height, maxIterations;
+	private final double xMin, xMax, yMin, yMax, cr, ci;
+	private final BigDecimal exactXMin, exactXMax, exactYMin, exactYMax;
+	private final double xRange, yRange, xMinLow, yMinLow;
+	private final long generation;
+
+	/**
+	 * Constructor for RenderJob
+	 * @param type which fractal is drawn
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 * @param xMin real part of the left edge
+	 * @param xMax real part of the right edge
+	 * @param yMin negated imaginary part of the top edge
+	 * @param yMax negated imaginary part of the bottom edge
+	 * @param maxIterations number of iterations
+	 * @param cr real part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param ci imaginary part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param generation number of the request, later requests have larger numbers
+	 */
+	public RenderJob(Type type, int width, int height, double xMin, double xMax, double yMin, double yMax, int maxIterations, double cr, double ci, long generation) {
+		this(type, width, height, new BigDecimal(xMin), new BigDecimal(xMax), new BigDecimal(yMin), new BigDecimal(yMax), maxIterations, cr, ci, generation);
+	}
+
+	/**
+	 * Constructor for RenderJob with exact edges
+	 * @param type which fractal is drawn
+	 * @param width width in pixels
+	 * @param height height in pixels
+	 * @param xMin real part of the left edge
+	 * @param xMax real part of the right edge
+	 * @param yMin negated imaginary part of the top edge
+	 * @param yMax negated imaginary part of the bottom edge
+	 * @param maxIterations number of iterations
+	 * @param cr real part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param ci imaginary part of c of the Juliaset, not used for the Mandelbrot set
+	 * @param generation number of the request, later requests have larger numbers
+	 */
+	public RenderJob(Type type, int width, int height, BigDecimal xMin, BigDecimal xMax, BigDecimal yMin, BigDecimal yMax, int maxIterations, double cr, double ci, long generation) {
+		this.type = type;
+		this.width = width;
+		this.height = height;
+		this.exactXMin = xMin;
+		this.exactXMax = xMax;
+		this.exactYMin = yMin;
+		this.exactYMax = yMax;
+		this.xMin = xMin.doubleValue();
+		this.xMax = xMax.doubleValue();
+		this.yMin = yMin.doubleValue();
+		this.yMax = yMax.doubleValue();
+		this.xMinLow = DoubleDouble.low(xMin, this.xMin);
+		this.yMinLow = DoubleDouble.low(yMin, this.yMin);
+		//Worked out from the exact edges, which may round to the same double
+		this.xRange = xMax.subtract(xMin).doubleValue();
+		this.yRange = yMax.subtract(yMin).doubleValue();
+		this.maxIterations = maxIterations;
+		this.cr = cr;
+		this.ci = ci;
+		this.generation = generation;
+	}
+
+	/**
+	 * Real part of the points in a pixel column
+	 * @param x pixel column
+	 * @return real part
+	 */
+	public double real(int x) {
+		return xMin + (((double) x/width)*(xMax - xMin));
+	}
+
+	/**
+	 * Imaginary part of the points in a pixel row
+	 * @param y pixel row
+	 * @return imaginary part
+	 */
+	public double imaginary(int y) {
+		return -(yMin + (((double) y/height)*(yMax - yMin)));
+	}
+
+	/**
+	 * Works out how far this frame is moved from an earlier frame, when the only differences between
+	 * them are that this frame is moved by a whole number of pixels and max iterations
+	 * @param previous earlier frame, may be null
+	 * @return {dx, dy} so that pixel (x, y) of this frame is pixel (x + dx, y + dy) of the earlier frame,
+	 * or null if the frames differ in another way or do not overlap
+	 */
+	public int[] offsetFrom(RenderJob previous) {
+		if (previous == null || type != previous.type || width != previous.width || height != previous.height
+				|| cr != previous.cr || ci != previous.ci) {
+			return null;
+		}
+		//A change of scale would move the pixels at the far edge by this many pixels
+		if (Math.abs(previous.xRange / xRange - 1) * width > PIXEL_TOLERANCE
+				|| Math.abs(previous.yRange / yRange - 1) * height > PIXEL_TOLERANCE) {
+			return null;
+		}
+		double dx = exactXMin.subtract(previous.exactXMin).doubleValue() / xRange * width;
+		double dy = exactYMin.subtract(previous.exactYMin).doubleValue() / yRange * height;
+		long x = Math.round(dx);
+		long y = Math.round(dy);
+		if (Math.abs(dx - x) > PIXEL_TOLERANCE || Math.abs(dy - y) > PIXEL_TOLERANCE || Math.abs(x) >= width || Math.abs(y) >= height) {
+			return null;
+		}
+		return new int[] {(int) x, (int) y};
+	}
+
+	/**
+	 * Getter for type
+	 * @return which fractal is drawn
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * Getter for width
+	 * @return width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter for height
+	 * @return height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Getter for max iterations
+	 * @return max iterations
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * Getter for xMin
+	 * @return xMin
+	 */
+	public double getxMin() {
+		return xMin;
+	}
+
+	/**
+	 * Getter for xMax
+	 * @return xMax
+	 */
+	public double getxMax() {
+		return xMax;
+	}
+
+	/**
+	 * Getter for yMin
+	 * @return yMin
+	 */
+	public double getyMin() {
+		return yMin;
+	}
+
+	/**
+	 * Getter for yMax
+	 * @return yMax
+	 */
+	public double getyMax() {
+		return yMax;
+	}
+
+	/**
+	 * Gets the exact real part of the left edge
+	 * @return xMin
+	 */
+	public BigDecimal getExactxMin() {
+		return exactXMin;
+	}
+
+	/**
+	 * Gets the exact real part of the right edge
+	 * @return xMax
+	 */
+	public BigDecimal getExactxMax() {
+		return exactXMax;
+	}
+
+	/**
+	 * Gets the exact negated imaginary part of the top edge
+	 * @return yMin
+	 */
+	public BigDecimal getExactyMin() {
+		return exactYMin;
+	}
+
+	/**
+	 * Gets the exact negated imaginary part of the bottom edge
+	 * @return yMax
+	 */
+	public BigDecimal getExactyMax() {
+		return exactYMax;
+	}
+
+	/**
+	 * Gets the low part of xMin as a double-double, xMin is the high part
+	 * @return exact xMin - xMin
+	 */
+	public double getxMinLow() {
+		return xMinLow;
+	}
+
+	/**
+	 * Gets the low part of yMin as a double-double, yMin is the high part
+	 * @return exact yMin - yMin
+	 */
+	public double getyMinLow() {
+		return yMinLow;
+	}
+
+	/**
+	 * Gets the width of the frame in the complex plane
+	 * @return xMax - xMin
+	 */
+	public double getxRange() {
+		return xRange;
+	}
+
+	/**
+	 * Gets the height of the frame in the complex plane
+	 * @return yMax - yMin
+	 */
+	public double getyRange() {
+		return yRange;
+	}
+
+	/**
+	 * Gets the distance between two pixels in the complex plane, the smaller of the two directions
+	 * @return pixel size
+	 */
+	public double getPixelSize() {
+		return Math.min(Math.abs(xRange) / width, Math.abs(yRange) / height);
+	}
+
+	/**
+	 * Getter for the real part of c of the Juliaset
+	 * @return real part of c
+	 */
+	public double getCr() {
+		return cr;
+	}
+
+	/**
+	 * Getter for the imaginary part of c of the Juliaset
+	 * @return imaginary part of c
+	 */
+	public double getCi() {
+		return ci;
+	}
+
+	/**
+	 * Getter for generation
+	 * @return number of the request
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+}
@@ -0,0 +1,239 @@
+/**
+ * Measurements of one frame drawn by a FractalRenderer, handed to its stats listeners once the frame is
+ * finished or cancelled. Times are wall clock times in nanoseconds. Tile time is the time render threads spent
+ * drawing tiles, added up over every thread, so it is compared with the frame time of every thread to get
+ * their utilisation. Tiles of the tile cache are drawn as parts of their own and are counted as such
+ */
+public class RenderStats {
+	private final RenderJob.Type type;
+	private final int width, height, maxIterations, parallelism;
+	private final FractalRenderer.Arithmetic arithmetic;
+	private final FractalRenderer.RenderMode renderMode;
+	private final boolean finished;
+	private final long frameNanos, tileNanos, longestTileNanos;
+	private final long tiles, computedPixels, filledPixels, iterations, interiorPixels;
+
+	/**
+	 * Constructor for RenderStats
+	 * @param job frame which was drawn
+	 * @param arithmetic arithmetic the frame was iterated in
+	 * @param renderMode how the pixels of each tile were worked out
+	 * @param parallelism number of render threads
+	 * @param finished true if the frame was finished, false if it was cancelled
+	 * @param frameNanos time from starting the frame to finishing or cancelling it
+	 * @param tiles number of tiles drawn
+	 * @param tileNanos time spent drawing tiles, added up over every render thread
+	 * @param longestTileNanos time spent drawing the slowest tile
+	 * @param computedPixels number of pixels iterated
+	 * @param filledPixels number of pixels filled in without iterating them
+	 * @param iterations number of iterations of the pixels iterated
+	 * @param interiorPixels number of pixels which did not escape, 0 if the frame was cancelled
+	 */
+	public RenderStats(RenderJob job, FractalRenderer.Arithmetic arithmetic, FractalRenderer.RenderMode renderMode, int parallelism,
+			boolean finished, long frameNanos, long tiles, long tileNanos, long longestTileNanos,
+			long computedPixels, long filledPixels, long iterations, long interiorPixels) {
+		this.type = job.getType();
+		this.width = job.getWidth();
+		this.height = job.getHeight();
+		this.maxIterations = job.getMaxIterations();
+		this.arithmetic = arithmetic;
+		this.renderMode = renderMode;
+		this.parallelism = parallelism;
+		this.finished = finished;
+		this.frameNanos = frameNanos;
+		this.tiles = tiles;
+		this.tileNanos = tileNanos;
+		this.longestTileNanos = longestTileNanos;
+		this.computedPixels = computedPixels;
+		this.filledPixels = filledPixels;
+		this.iterations = iterations;
+		this.interiorPixels = interiorPixels;
+	}
+
+	/**
+	 * Getter for type
+	 * @return which fractal was drawn
+	 */
+	public RenderJob.Type getType() {
+		return type;
+	}
+
+	/**
+	 * Getter for width
+	 * @return width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Getter for height
+	 * @return height in pixels
+	 */
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Getter for max iterations
+	 * @return max iterations
+	 */
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**
+	 * Getter for arithmetic
+	 * @return arithmetic the frame was iterated in
+	 */
+	public FractalRenderer.Arithmetic getArithmetic() {
+		return arithmetic;
+	}
+
+	/**
+	 * Getter for render mode
+	 * @return how the pixels of each tile were worked out
+	 */
+	public FractalRenderer.RenderMode getRenderMode() {
+		return renderMode;
+	}
+
+	/**
+	 * Getter for parallelism
+	 * @return number of render threads
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Checks if the frame was finished
+	 * @return true if the frame was finished, false if it was cancelled
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Getter for frame time
+	 * @return nanoseconds from starting the frame to finishing or cancelling it
+	 */
+	public long getFrameNanos() {
+		return frameNanos;
+	}
+
+	/**
+	 * Getter for tiles
+	 * @return number of tiles drawn
+	 */
+	public long getTiles() {
+		return tiles;
+	}
+
+	/**
+	 * Getter for tile time
+	 * @return nanoseconds spent drawing tiles, added up over every render thread
+	 */
+	public long getTileNanos() {
+		return tileNanos;
+	}
+
+	/**
+	 * Getter for longest tile time
+	 * @return nanoseconds spent drawing the slowest tile
+	 */
+	public long getLongestTileNanos() {
+		return longestTileNanos;
+	}
+
+	/**
+	 * Gets the mean time spent drawing a tile
+	 * @return nanoseconds, 0 if no tiles were drawn
+	 */
+	public double getMeanTileNanos() {
+		return tiles == 0 ? 0 : (double) tileNanos / tiles;
+	}
+
+	/**
+	 * Getter for computed pixels
+	 * @return number of pixels iterated
+	 */
+	public long getComputedPixels() {
+		return computedPixels;
+	}
+
+	/**
+	 * Getter for filled pixels
+	 * @return number of pixels filled in without iterating them
+	 */
+	public long getFilledPixels() {
+		return filledPixels;
+	}
+
+	/**
+	 * Getter for iterations. Iterations carried on from the last frame only count the iterations added,
+	 * points found inside the set by periodicity checks count the iterations up to their cycle and points
+	 * found inside by interior checks count none
+	 * @return number of iterations of the pixels iterated
+	 */
+	public long getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Getter for interior pixels
+	 * @return number of pixels which did not escape, 0 if the frame was cancelled
+	 */
+	public long getInteriorPixels() {
+		return interiorPixels;
+	}
+
+	/**
+	 * Gets the number of pixels of the frame
+	 * @return width * height
+	 */
+	public long getPixels() {
+		return (long) width * height;
+	}
+
+	/**
+	 * Gets the number of pixels of the frame drawn a second
+	 * @return pixels per second
+	 */
+	public double getPixelsPerSecond() {
+		return frameNanos == 0 ? 0 : getPixels() * 1e9 / frameNanos;
+	}
+
+	/**
+	 * Gets the number of iterations done a second
+	 * @return iterations per second
+	 */
+	public double getIterationsPerSecond() {
+		return frameNanos == 0 ? 0 : iterations * 1e9 / frameNanos;
+	}
+
+	/**
+	 * Gets the share of the pixels of the frame which did not escape
+	 * @return interior pixels as a fraction of every pixel, 0 if the frame was cancelled
+	 */
+	public double getInteriorShare() {
+		return (double) interiorPixels / getPixels();
+	}
+
+	/**
+	 * Gets how busy the render threads were drawing tiles while the frame was drawn. The rest of the time
+	 * they waited for other threads to finish their last tiles, or the frame was working out its reference orbit,
+	 * colouring or putting tiles of the tile cache together
+	 * @return tile time as a fraction of the frame time of every render thread
+	 */
+	public double getUtilisation() {
+		return frameNanos == 0 ? 0 : Math.min(1, (double) tileNanos / ((double) frameNanos * parallelism));
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %dx%d %s %.1f ms, %d tiles (mean %.2f ms, longest %.2f ms), %.1f Mpixels/s, %.1f Miterations/s, %.0f%% inside, %.0f%% utilisation",
+				finished ? "Frame" : "Cancelled frame", width, height, arithmetic, frameNanos / 1e6, tiles, getMeanTileNanos() / 1e6, longestTileNanos / 1e6,
+				getPixelsPerSecond() / 1e6, getIterationsPerSecond() / 1e6, getInteriorShare() * 100, getUtilisation() * 100);
+	}
+}
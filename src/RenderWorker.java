@@ -0,0 +1,156 @@
+import java.awt.Rectangle;
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Draws tiles of an iteration file for a RenderCoordinator in another JVM, so one frame can be drawn by
+ * several processes or machines. Each connection is served on a thread of its own with a renderer of its own,
+ * its tiles are drawn one after another on the render threads of the renderer.
+ * Run with java -Djava.awt.headless=true RenderWorker [-port n] [-threads n]
+ * <p>
+ * The protocol is big-endian as written by DataOutputStream. The coordinator starts with a hello and the worker
+ * answers with the same hello, then the coordinator sends tile requests and the worker answers each with its
+ * counts, in the order they were sent. Either side closes the connection to end it. The coordinator drops a worker
+ * which sends no answer within its tile timeout, see RenderCoordinator:
+ * <pre>
+ * hello     int "FRWK", int version
+ * request   int tile, int type, int width, int height, int max iterations, double cr, double ci,
+ *           UTF xMin, xMax, yMin, yMax
+ * answer    int tile, float[width*height] smooth iteration counts row by row
+ * </pre>
+ */
+public class RenderWorker {
+	/** Port a worker listens on if none is given */
+	public static final int DEFAULT_PORT = 7171;
+	static final int MAGIC = 0x4652574B, VERSION = 1;
+
+	public static void main(String[] args) throws IOException {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		int port = DEFAULT_PORT;
+		int threads = Runtime.getRuntime().availableProcessors();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-port") && i + 1 < args.length) {
+					port = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-threads") && i + 1 < args.length) {
+					threads = Integer.parseInt(args[++i]);
+				} else {
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+			}
+			if (threads < 1) {
+				throw new IllegalArgumentException("Threads must be positive: " + threads);
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java -Djava.awt.headless=true RenderWorker [-port n] [-threads n]");
+			System.exit(2);
+		}
+		try (ServerSocket server = new ServerSocket(port)) {
+			System.out.println("Worker listening on port " + server.getLocalPort() + " with " + threads + " render threads");
+			int connections = 0;
+			while (true) {
+				Socket socket = server.accept();
+				int render = threads;
+				Thread thread = new Thread(() -> serve(socket, render), "worker-" + connections++);
+				thread.start();
+			}
+		}
+	}
+
+	/**
+	 * Answers the tile requests of one coordinator until it closes the connection
+	 * @param socket connection to the coordinator
+	 * @param threads number of render threads to draw with
+	 */
+	private static void serve(Socket socket, int threads) {
+		String coordinator = socket.getRemoteSocketAddress().toString();
+		FractalRenderer renderer = new FractalRenderer(Thread.currentThread().getName(), threads, Boolean.getBoolean("fractal.virtualThreads"));
+		int tiles = 0;
+		try (socket) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			readHello(in);
+			writeHello(out);
+			out.flush();
+			while (true) {
+				int tile;
+				try {
+					tile = in.readInt();
+				} catch (EOFException e) {
+					break;
+				}
+				RenderJob.Type type = RenderJob.Type.values()[in.readInt()];
+				int width = in.readInt();
+				int height = in.readInt();
+				int maxIterations = in.readInt();
+				double cr = in.readDouble();
+				double ci = in.readDouble();
+				BigDecimal xMin = new BigDecimal(in.readUTF());
+				BigDecimal xMax = new BigDecimal(in.readUTF());
+				BigDecimal yMin = new BigDecimal(in.readUTF());
+				BigDecimal yMax = new BigDecimal(in.readUTF());
+				float[] counts = renderer.renderTile(type, width, height, xMin, xMax, yMin, yMax, maxIterations, cr, ci);
+				ByteBuffer bytes = ByteBuffer.allocate(counts.length * Float.BYTES);
+				bytes.asFloatBuffer().put(counts);
+				out.writeInt(tile);
+				out.write(bytes.array());
+				out.flush();
+				tiles++;
+			}
+		} catch (IOException | RuntimeException e) {
+			System.err.println(coordinator + ": " + e);
+		} finally {
+			renderer.shutdown();
+		}
+		System.out.println(coordinator + " drew " + tiles + " tiles");
+	}
+
+	/**
+	 * Writes the hello which starts a connection
+	 * @param out stream to the other side
+	 */
+	static void writeHello(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+	}
+
+	/**
+	 * Reads the hello which starts a connection
+	 * @param in stream from the other side
+	 * @throws IOException if the other side does not speak this protocol
+	 */
+	static void readHello(DataInputStream in) throws IOException {
+		int magic = in.readInt();
+		int version = in.readInt();
+		if (magic != MAGIC || version != VERSION) {
+			throw new IOException("Not a render connection of version " + VERSION);
+		}
+	}
+
+	/**
+	 * Writes the request of a tile of an iteration file
+	 * @param out stream to the worker
+	 * @param file file the tile is in
+	 * @param tile index of the tile
+	 */
+	static void writeRequest(DataOutputStream out, IterationFile file, int tile) throws IOException {
+		Rectangle bounds = file.getTileBounds(tile);
+		out.writeInt(tile);
+		out.writeInt(file.getType().ordinal());
+		out.writeInt(bounds.width);
+		out.writeInt(bounds.height);
+		out.writeInt(file.getMaxIterations());
+		out.writeDouble(file.getCr());
+		out.writeDouble(file.getCi());
+		for (BigDecimal edge : file.getTileCoordinates(tile)) {
+			out.writeUTF(edge.toString());
+		}
+	}
+}
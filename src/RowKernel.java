@@ -0,0 +1,90 @@
+/**
+ * Escape time kernel which iterates a row of points together, for kernels which work on several
+ * points at once such as VectorRowKernel. Each call works on count points with the same imaginary part,
+ * their results are written to the arrays at the same index as their real part
+ */
+public interface RowKernel {
+
+	/**
+	 * Kernel built on the Vector API, or null if jdk.incubator.vector is not available.
+	 * The module is only available when the JVM is run with --add-modules jdk.incubator.vector
+	 */
+	RowKernel VECTOR = load("VectorRowKernel");
+
+	/**
+	 * Iterates a row of points of the Mandelbrot set, z starts at c
+	 * @param real real parts of the points
+	 * @param imaginary imaginary part of the points
+	 * @param count number of points
+	 * @param maxIterations number of iterations before a point is treated as inside the set
+	 * @param interiorChecks true to reject points in the main cardioid and period 2 bulb without iterating
+	 * @param periodTolerance how close the orbit of a point has to come back to itself to stop iterating it,
+	 * 0 for no periodicity checks, see EscapeTime.periodTolerance
+	 * @param iterations number of iterations of each point, EscapeTime.INSIDE if it never escapes
+	 * @param cycled number of iterations of each INSIDE point up to where its cycle was found, 0 if the interior checks
+	 * rejected it, only written for INSIDE points so it can be null when both checks are off
+	 * @param zr real part of the final z of each point
+	 * @param zi imaginary part of the final z of each point
+	 */
+	void mandelbrot(double[] real, double imaginary, int count, int maxIterations, boolean interiorChecks, double periodTolerance,
+			int[] iterations, int[] cycled, double[] zr, double[] zi);
+
+	/**
+	 * Iterates a row of points of the Juliaset, c is the constant of the Juliaset
+	 * @param real real parts of the points
+	 * @param imaginary imaginary part of the points
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @param count number of points
+	 * @param maxIterations number of iterations before a point is treated as inside the set
+	 * @param iterations number of iterations of each point
+	 * @param zr real part of the final z of each point
+	 * @param zi imaginary part of the final z of each point
+	 */
+	void julia(double[] real, double imaginary, double cr, double ci, int count, int maxIterations, int[] iterations, double[] zr, double[] zi);
+
+	/**
+	 * Iterates a row of points of the Mandelbrot set in floats, see mandelbrot. The points are rounded to floats
+	 * @param real real parts of the points
+	 * @param imaginary imaginary part of the points
+	 * @param count number of points
+	 * @param maxIterations number of iterations before a point is treated as inside the set, at most 2^24
+	 * @param interiorChecks true to reject points in the main cardioid and period 2 bulb without iterating
+	 * @param periodicityChecks true to stop iterating points once their orbit repeats itself exactly
+	 * @param iterations number of iterations of each point, EscapeTime.INSIDE if it never escapes
+	 * @param cycled number of iterations of each INSIDE point up to where its cycle was found, 0 if the interior checks
+	 * rejected it, only written for INSIDE points so it can be null when both checks are off
+	 * @param zr real part of the final z of each point
+	 * @param zi imaginary part of the final z of each point
+	 */
+	void mandelbrotFloat(double[] real, double imaginary, int count, int maxIterations, boolean interiorChecks, boolean periodicityChecks,
+			int[] iterations, int[] cycled, double[] zr, double[] zi);
+
+	/**
+	 * Iterates a row of points of the Juliaset in floats, see julia. The points and c are rounded to floats
+	 * @param real real parts of the points
+	 * @param imaginary imaginary part of the points
+	 * @param cr real part of c
+	 * @param ci imaginary part of c
+	 * @param count number of points
+	 * @param maxIterations number of iterations before a point is treated as inside the set, at most 2^24
+	 * @param iterations number of iterations of each point
+	 * @param zr real part of the final z of each point
+	 * @param zi imaginary part of the final z of each point
+	 */
+	void juliaFloat(double[] real, double imaginary, double cr, double ci, int count, int maxIterations, int[] iterations, double[] zr, double[] zi);
+
+	/**
+	 * Loads a kernel by the name of its class, so classes which need optional modules are only
+	 * loaded if the modules are there
+	 * @param className name of the class, which needs a public constructor without parameters
+	 * @return kernel, or null if it could not be loaded
+	 */
+	static RowKernel load(String className) {
+		try {
+			return (RowKernel) Class.forName(className).getConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of fractal tiles which is shared between frames, so a part of the plane which was drawn
+ * before is not iterated again.
+ * Tiles are laid out on a quadtree grid over the complex plane: at level 0 a tile is 4 wide, and every
+ * level splits each tile into four. A tile is TILE_SIZE by TILE_SIZE pixels whatever its level.
+ * When the cache is full the least recently used tiles are evicted
+ */
+public class TileCache {
+
+	/**
+	 * Width and height of a tile in pixels
+	 */
+	public static final int TILE_SIZE = 64;
+
+	/**
+	 * Deepest level, beyond it the pixels of a tile are too close together for doubles
+	 */
+	public static final int MAX_LEVEL = 44;
+
+	private static final double ROOT_SIZE = 4;
+	private static final int BYTES_PER_PIXEL = 24;
+
+	private final long maxBytes;
+	private final LinkedHashMap<Key, IterationBuffer> tiles = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes, hits, misses, evictions;
+
+	/**
+	 * Constructor for TileCache
+	 * @param maxBytes memory budget of the cached tiles in bytes
+	 */
+	public TileCache(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("Memory budget must be positive: " + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Works out the coarsest level whose pixels are at least as fine as the pixels of a frame, so frames
+	 * put together from it are never blockier than when drawn directly. Levels within a rounding error
+	 * of the frame count as being as fine
+	 * @param pixelSize distance between two pixels of the frame in the complex plane
+	 * @return level, may be negative for frames zoomed out beyond level 0
+	 */
+	public static int levelFor(double pixelSize) {
+		return (int) Math.ceil(Math.log(ROOT_SIZE / (TILE_SIZE * pixelSize)) / Math.log(2) - 1e-9);
+	}
+
+	/**
+	 * Gets the width of a tile of a level in the complex plane
+	 * @param level level
+	 * @return width of a tile
+	 */
+	public static double tileWidth(int level) {
+		return Math.scalb(ROOT_SIZE, -level);
+	}
+
+	/**
+	 * Gets the distance between two pixels of a tile of a level in the complex plane
+	 * @param level level
+	 * @return distance between two pixels
+	 */
+	public static double pixelSize(int level) {
+		return tileWidth(level) / TILE_SIZE;
+	}
+
+	/**
+	 * Gets a tile and marks it as recently used
+	 * @param key tile to get
+	 * @return the state of the pixels of the tile, or null if it is not cached
+	 */
+	public synchronized IterationBuffer get(Key key) {
+		IterationBuffer tile = tiles.get(key);
+		if (tile == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return tile;
+	}
+
+	/**
+	 * Adds a finished tile, evicting the least recently used tiles if the cache goes over its memory budget.
+	 * The tile must not be changed afterwards
+	 * @param key tile to add
+	 * @param tile the state of the pixels of the tile
+	 */
+	public synchronized void put(Key key, IterationBuffer tile) {
+		IterationBuffer old = tiles.put(key, tile);
+		if (old != null) {
+			bytes -= sizeOf(old);
+		}
+		bytes += sizeOf(tile);
+		Iterator<IterationBuffer> eldest = tiles.values().iterator();
+		while (bytes > maxBytes && eldest.hasNext()) {
+			bytes -= sizeOf(eldest.next());
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes every tile, the hit and miss counts are kept
+	 */
+	public synchronized void clear() {
+		tiles.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Works out how much memory a tile takes up
+	 * @param tile tile
+	 * @return size in bytes
+	 */
+	private static long sizeOf(IterationBuffer tile) {
+		return (long) tile.getWidth() * tile.getHeight() * BYTES_PER_PIXEL;
+	}
+
+	/**
+	 * Getter for max bytes
+	 * @return memory budget in bytes
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Gets the memory taken up by the cached tiles
+	 * @return size in bytes
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Gets the number of cached tiles
+	 * @return number of tiles
+	 */
+	public synchronized int size() {
+		return tiles.size();
+	}
+
+	/**
+	 * Gets the number of times a tile was found in the cache
+	 * @return hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of times a tile was not found in the cache
+	 * @return misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the number of tiles evicted to stay within the memory budget
+	 * @return evictions
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "TileCache[" + tiles.size() + " tiles, " + (bytes >> 20) + "/" + (maxBytes >> 20) + " MB, "
+				+ hits + " hits, " + misses + " misses, " + evictions + " evictions]";
+	}
+
+	/**
+	 * Identifies a tile: which fractal it is part of, where it is on the quadtree grid, how far it was iterated
+	 * and the settings it was drawn with
+	 */
+	public static final class Key {
+		private final RenderJob.Type type;
+		private final double cr, ci;
+		private final int level, maxIterations;
+		private final long x, y;
+		private final Object settings;
+
+		/**
+		 * Constructor for Key
+		 * @param type which fractal the tile is part of
+		 * @param cr real part of c of the Juliaset, 0 for the Mandelbrot set
+		 * @param ci imaginary part of c of the Juliaset, 0 for the Mandelbrot set
+		 * @param level level of the tile
+		 * @param x column of the tile, the tile starts at real part x * tileWidth(level)
+		 * @param y row of the tile, the tile starts at imaginary part -y * tileWidth(level)
+		 * @param maxIterations max iterations the tile was iterated up to
+		 * @param settings settings which change the state worked out for the pixels, such as the arithmetic and checks,
+		 * tiles drawn with other settings are not used
+		 */
+		public Key(RenderJob.Type type, double cr, double ci, int level, long x, long y, int maxIterations, Object settings) {
+			this.type = type;
+			this.cr = cr;
+			this.ci = ci;
+			this.level = level;
+			this.x = x;
+			this.y = y;
+			this.maxIterations = maxIterations;
+			this.settings = settings;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return type == other.type && Double.compare(cr, other.cr) == 0 && Double.compare(ci, other.ci) == 0
+					&& level == other.level && x == other.x && y == other.y && maxIterations == other.maxIterations
+					&& settings.equals(other.settings);
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = type.hashCode();
+			hash = 31 * hash + Double.hashCode(cr);
+			hash = 31 * hash + Double.hashCode(ci);
+			hash = 31 * hash + level;
+			hash = 31 * hash + Long.hashCode(x);
+			hash = 31 * hash + Long.hashCode(y);
+			hash = 31 * hash + maxIterations;
+			return 31 * hash + settings.hashCode();
+		}
+	}
+}
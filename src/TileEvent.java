@@ -0,0 +1,27 @@
+import jdk.jfr.*;
+
+/**
+ * Flight recorder event of a tile drawn on a render thread, so slow tiles and idle threads show up
+ * on the thread timeline of a recording. Tiles of progressive passes are recorded once for each pass
+ */
+@Name("fractals.Tile")
+@Label("Tile")
+@Category("Fractals")
+@Description("A tile of a frame drawn on a render thread")
+public class TileEvent extends Event {
+	@Label("X")
+	int x;
+
+	@Label("Y")
+	int y;
+
+	@Label("Width")
+	int width;
+
+	@Label("Height")
+	int height;
+
+	@Label("Step")
+	@Description("Pixels between the points iterated by a progressive pass, 1 for every pixel")
+	int step;
+}
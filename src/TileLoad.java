@@ -0,0 +1,168 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Requests tiles from a TileServer as fast as it answers them and reports how many tiles it serves a second.
+ * Run with java TileLoad [-threads n] [-seconds n] [-zoom n] [-tiles n] url
+ * <p>
+ * url is the tiles of one fractal, such as http://localhost:8080/mandelbrot. Each thread requests random tiles
+ * of zoom levels 0 to -zoom, one after another. With -tiles the requests only go to that many different tiles,
+ * picked at random at the start, to measure a server whose tiles are cached
+ */
+public class TileLoad {
+
+	public static void main(String[] args) throws InterruptedException {
+		int threads = 8, seconds = 10, zoom = 8, tiles = 0;
+		String url = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].startsWith("-") && i + 1 < args.length) {
+					int value = Integer.parseInt(args[i + 1]);
+					switch (args[i++]) {
+					case "-threads":
+						threads = value;
+						break;
+					case "-seconds":
+						seconds = value;
+						break;
+					case "-zoom":
+						zoom = value;
+						break;
+					case "-tiles":
+						tiles = value;
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option: " + args[i - 1]);
+					}
+				} else if (url == null && !args[i].startsWith("-")) {
+					url = args[i].endsWith("/") ? args[i].substring(0, args[i].length() - 1) : args[i];
+				} else {
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				}
+			}
+			if (url == null) {
+				throw new IllegalArgumentException("No url");
+			}
+			if (threads < 1 || seconds < 1 || zoom < 0 || zoom > 30 || tiles < 0) {
+				throw new IllegalArgumentException("threads and seconds must be positive, zoom from 0 to 30");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java TileLoad [-threads n] [-seconds n] [-zoom n] [-tiles n] url");
+			System.exit(2);
+		}
+
+		Random random = new Random();
+		String[] workingSet = new String[tiles];
+		for (int i = 0; i < tiles; i++) {
+			workingSet[i] = randomTile(random, zoom);
+		}
+		HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+		long start = System.nanoTime();
+		long end = start + seconds * 1_000_000_000L;
+		List<Requester> requesters = new ArrayList<>();
+		List<Thread> running = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			Requester requester = new Requester(client, url, zoom, workingSet, end);
+			Thread thread = new Thread(requester, "load-" + i);
+			thread.start();
+			requesters.add(requester);
+			running.add(thread);
+		}
+		for (Thread thread : running) {
+			thread.join();
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		int count = 0, errors = 0;
+		Map<String, Integer> sources = new TreeMap<>();
+		for (Requester requester : requesters) {
+			count += requester.count;
+			errors += requester.errors;
+			requester.sources.forEach((source, n) -> sources.merge(source, n, Integer::sum));
+		}
+		long[] latencies = new long[count];
+		int filled = 0;
+		for (Requester requester : requesters) {
+			System.arraycopy(requester.latencies, 0, latencies, filled, requester.count);
+			filled += requester.count;
+		}
+		Arrays.sort(latencies);
+		System.out.printf("%d tiles in %.1f s, %.1f tiles per second, %d errors%n", count, elapsed, count / elapsed, errors);
+		if (count > 0) {
+			System.out.printf("latency mean %.2f ms, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms%n", Arrays.stream(latencies).average().getAsDouble() / 1e6,
+					latencies[count / 2] / 1e6, latencies[(int) (count * 0.9)] / 1e6, latencies[(int) (count * 0.99)] / 1e6);
+		}
+		System.out.println("sources " + sources);
+	}
+
+	/**
+	 * Picks a random tile
+	 * @param random random numbers
+	 * @param zoom deepest zoom level
+	 * @return tile as z/x/y.png
+	 */
+	private static String randomTile(Random random, int zoom) {
+		int z = random.nextInt(zoom + 1);
+		return z + "/" + random.nextInt(1 << z) + "/" + random.nextInt(1 << z) + ".png";
+	}
+
+	/**
+	 * Requests tiles one after another on a thread of its own, and keeps the latency of each
+	 */
+	private static final class Requester implements Runnable {
+		private final HttpClient client;
+		private final String url;
+		private final int zoom;
+		private final String[] workingSet;
+		private final long end;
+		private final Random random = new Random();
+		private final Map<String, Integer> sources = new TreeMap<>();
+		private long[] latencies = new long[1024];
+		private int count, errors;
+
+		public Requester(HttpClient client, String url, int zoom, String[] workingSet, long end) {
+			this.client = client;
+			this.url = url;
+			this.zoom = zoom;
+			this.workingSet = workingSet;
+			this.end = end;
+		}
+
+		@Override
+		public void run() {
+			while (System.nanoTime() < end) {
+				String tile = workingSet.length > 0 ? workingSet[random.nextInt(workingSet.length)] : randomTile(random, zoom);
+				long start = System.nanoTime();
+				try {
+					HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(url + "/" + tile)).build(),
+							HttpResponse.BodyHandlers.ofByteArray());
+					if (response.statusCode() != 200) {
+						errors++;
+						continue;
+					}
+					sources.merge(response.headers().firstValue("X-Tile-Source").orElse("unknown"), 1, Integer::sum);
+				} catch (IOException e) {
+					errors++;
+					continue;
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (count == latencies.length) {
+					latencies = Arrays.copyOf(latencies, count * 2);
+				}
+				latencies[count++] = System.nanoTime() - start;
+			}
+		}
+	}
+}
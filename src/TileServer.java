@@ -0,0 +1,526 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Serves tiles of the Mandelbrot set and Juliaset over HTTP in the layout of web maps, for viewers such as Leaflet.
+ * Run with java -Djava.awt.headless=true TileServer [-parallel n] [setting=value ...]
+ * <p>
+ * GET /{type}/{z}/{x}/{y}.png is a 256 by 256 PNG tile, type is mandelbrot or julia. At zoom level z the plane
+ * is split into 2^z by 2^z tiles, tile 0/0/0 covers -2.5 to 1.5 of the Mandelbrot set and -2 to 2 of the Juliaset,
+ * x goes right and y goes down. Zoom levels go up to 200 for the Mandelbrot set and 82 for the Juliaset.
+ * GET /metrics shows the request counts, cache hits and latencies as text, and GET / is a map viewer.
+ * Any setting which is left out takes its default:
+ * <pre>
+ * port=8080                 port to listen on
+ * iterations=500            max iterations at zoom level 0
+ * zoomiterations=100        max iterations added each zoom level
+ * c=-0.8,0.156              c of the Juliaset
+ * palette=hue               hue, fire or greyscale
+ * memory=64                 MB of tiles kept in memory
+ * cache=tiles               directory tiles are kept in on disk, none if empty
+ * disk=1024                 MB of tiles kept on disk
+ * </pre>
+ * A tile is looked for in memory, then on disk, and only drawn if it is in neither. Requests for a tile which is
+ * being drawn wait for that drawing instead of drawing it again. -parallel sets how many tiles are drawn at once,
+ * the render threads are shared out between them
+ */
+public class TileServer {
+	private static final String DEFAULTS = "port=8080 iterations=500 zoomiterations=100 c=-0.8,0.156 palette=hue memory=64 cache=tiles disk=1024";
+	private static final int TILE_SIZE = 256, MAX_ZOOM = 200, HANDLERS = 32;
+	//The Juliaset is drawn in double-doubles however deep it goes, their 106 bits stop resolving pixels past this level
+	private static final int MAX_JULIA_ZOOM = 82;
+	private static final String VIEWER = "<!DOCTYPE html>\n<html><head><title>Fractals</title>\n"
+			+ "<link rel=\"stylesheet\" href=\"https://unpkg.com/leaflet@1.9.4/dist/leaflet.css\">\n"
+			+ "<script src=\"https://unpkg.com/leaflet@1.9.4/dist/leaflet.js\"></script>\n"
+			+ "<style>html, body, #map {height: 100%; margin: 0}</style></head>\n"
+			+ "<body><div id=\"map\"></div><script>\n"
+			+ "var map = L.map('map').setView([0, 0], 2);\n"
+			+ "var layer = {mandelbrot: L.tileLayer('/mandelbrot/{z}/{x}/{y}.png', {noWrap: true, maxZoom: " + MAX_ZOOM + "}),\n"
+			+ "  julia: L.tileLayer('/julia/{z}/{x}/{y}.png', {noWrap: true, maxZoom: " + MAX_JULIA_ZOOM + "})};\n"
+			+ "layer.mandelbrot.addTo(map);\nL.control.layers(layer).addTo(map);\n"
+			+ "</script></body></html>\n";
+
+	private final BlockingQueue<FractalRenderer> renderers;
+	private final int baseIterations, zoomIterations;
+	private final double cr, ci;
+	private final PngCache memory;
+	private final DiskCache disk;
+	private final ConcurrentHashMap<String, CompletableFuture<byte[]>> drawing = new ConcurrentHashMap<>();
+	private final LongAdder requests = new LongAdder(), memoryHits = new LongAdder(), diskHits = new LongAdder(),
+			shared = new LongAdder(), drawn = new LongAdder(), failed = new LongAdder();
+	private final Latencies latencies = new Latencies(), drawLatencies = new Latencies();
+
+	public static void main(String[] args) throws IOException {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		//Without it small responses wait for delayed ACKs, about 40 ms each
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+		int parallel = 2;
+		Map<String, String> settings = new LinkedHashMap<>();
+		TileServer server = null;
+		int port = 0;
+		try {
+			BatchRender.parse(DEFAULTS, settings, DEFAULTS);
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-parallel") && i + 1 < args.length) {
+					parallel = Integer.parseInt(args[++i]);
+				} else if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				} else {
+					BatchRender.parse(args[i], settings, DEFAULTS);
+				}
+			}
+			if (parallel < 1) {
+				throw new IllegalArgumentException("Parallel tiles must be positive: " + parallel);
+			}
+			port = Integer.parseInt(settings.get("port"));
+			server = new TileServer(settings, parallel, Integer.getInteger("fractal.threads", Runtime.getRuntime().availableProcessors()));
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java -Djava.awt.headless=true TileServer [-parallel n] [setting=value ...]");
+			System.err.println("Settings and defaults: " + DEFAULTS);
+			System.exit(2);
+		}
+		HttpServer http = HttpServer.create(new InetSocketAddress(port), 0);
+		http.createContext("/", server::handle);
+		http.setExecutor(Executors.newFixedThreadPool(HANDLERS));
+		http.start();
+		System.out.println("Serving tiles on http://localhost:" + http.getAddress().getPort() + "/");
+	}
+
+	/**
+	 * Constructor for TileServer
+	 * @param settings settings, with every key of DEFAULTS
+	 * @param parallel number of tiles drawn at once
+	 * @param threads number of render threads shared out between the tiles drawn at once
+	 */
+	public TileServer(Map<String, String> settings, int parallel, int threads) throws IOException {
+		long memoryBytes, diskBytes;
+		try {
+			baseIterations = Integer.parseInt(settings.get("iterations"));
+			zoomIterations = Integer.parseInt(settings.get("zoomiterations"));
+			memoryBytes = Long.parseLong(settings.get("memory")) << 20;
+			diskBytes = Long.parseLong(settings.get("disk")) << 20;
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("iterations, zoomiterations, memory and disk are whole numbers: " + e.getMessage());
+		}
+		if (baseIterations < 1 || zoomIterations < 0) {
+			throw new IllegalArgumentException("iterations must be positive");
+		}
+		BigDecimal[] c = BatchRender.numbers(settings.get("c"), 2, "c");
+		cr = c[0].doubleValue();
+		ci = c[1].doubleValue();
+		Palette palette = BatchRender.palette(settings.get("palette"));
+		renderers = new ArrayBlockingQueue<>(parallel);
+		for (int i = 0; i < parallel; i++) {
+			FractalRenderer renderer = new FractalRenderer("tiles-" + i, Math.max(1, threads / parallel), Boolean.getBoolean("fractal.virtualThreads"));
+			renderer.setPalette(palette);
+			renderers.add(renderer);
+		}
+		memory = new PngCache(memoryBytes);
+		if (settings.get("cache").isEmpty()) {
+			disk = null;
+		} else {
+			//Tiles drawn with other settings are kept apart, so changing them never serves old tiles
+			String name = settings.get("palette") + "-" + baseIterations + "+" + zoomIterations + "-" + cr + "," + ci;
+			disk = new DiskCache(Paths.get(settings.get("cache"), name), diskBytes);
+		}
+	}
+
+	/**
+	 * Answers a request
+	 * @param exchange request and its response
+	 */
+	private void handle(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		try (exchange) {
+			if (!exchange.getRequestMethod().equals("GET") && !exchange.getRequestMethod().equals("HEAD")) {
+				send(exchange, 405, "text/plain", "Only GET\n".getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			String path = exchange.getRequestURI().getPath();
+			if (path.equals("/")) {
+				send(exchange, 200, "text/html", VIEWER.getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			if (path.equals("/metrics")) {
+				send(exchange, 200, "text/plain", metrics().getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			String[] parts = path.split("/");
+			if (parts.length != 5 || !parts[4].endsWith(".png") || !(parts[1].equals("mandelbrot") || parts[1].equals("julia"))) {
+				send(exchange, 404, "text/plain", "Tiles are /{mandelbrot|julia}/{z}/{x}/{y}.png\n".getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			requests.increment();
+			int z;
+			long x, y;
+			try {
+				z = Integer.parseInt(parts[2]);
+				x = Long.parseLong(parts[3]);
+				y = Long.parseLong(parts[4].substring(0, parts[4].length() - 4));
+			} catch (NumberFormatException e) {
+				z = -1;
+				x = y = 0;
+			}
+			if (z < 0 || z > (parts[1].equals("julia") ? MAX_JULIA_ZOOM : MAX_ZOOM) || x < 0 || y < 0 || (z < 63 && (x >= 1L << z || y >= 1L << z))) {
+				send(exchange, 400, "text/plain", ("No tile " + path + "\n").getBytes(StandardCharsets.UTF_8));
+				return;
+			}
+			String key = parts[1] + "/" + z + "/" + x + "/" + y;
+			try {
+				Tile tile = tile(BatchRender.type(parts[1]), z, x, y, key);
+				exchange.getResponseHeaders().set("Cache-Control", "max-age=86400");
+				exchange.getResponseHeaders().set("X-Tile-Source", tile.source);
+				send(exchange, 200, "image/png", tile.png);
+			} catch (IOException | RuntimeException e) {
+				failed.increment();
+				send(exchange, 500, "text/plain", (key + ": " + e + "\n").getBytes(StandardCharsets.UTF_8));
+			}
+			latencies.add(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Sends a response
+	 * @param exchange request and its response
+	 * @param status HTTP status
+	 * @param type content type
+	 * @param body body, not sent for HEAD requests
+	 */
+	private static void send(HttpExchange exchange, int status, String type, byte[] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", type);
+		boolean head = exchange.getRequestMethod().equals("HEAD");
+		exchange.sendResponseHeaders(status, head ? -1 : body.length);
+		if (!head) {
+			exchange.getResponseBody().write(body);
+		}
+	}
+
+	/**
+	 * Gets a tile from memory, from disk, from the drawing of the same tile for another request, or draws it
+	 * @param type which fractal the tile is part of
+	 * @param z zoom level
+	 * @param x column
+	 * @param y row
+	 * @param key name of the tile
+	 * @return tile
+	 */
+	private Tile tile(RenderJob.Type type, int z, long x, long y, String key) throws IOException {
+		byte[] png = memory.get(key);
+		if (png != null) {
+			memoryHits.increment();
+			return new Tile(png, "memory");
+		}
+		if (disk != null && (png = disk.get(key)) != null) {
+			diskHits.increment();
+			memory.put(key, png);
+			return new Tile(png, "disk");
+		}
+		CompletableFuture<byte[]> drawer = new CompletableFuture<>();
+		CompletableFuture<byte[]> running = drawing.putIfAbsent(key, drawer);
+		if (running != null) {
+			shared.increment();
+			try {
+				return new Tile(running.join(), "shared");
+			} catch (CompletionException e) {
+				throw new IOException("drawing the tile failed", e.getCause());
+			}
+		}
+		try {
+			//The tile may have been drawn for another request since it was looked for
+			png = memory.get(key);
+			if (png != null) {
+				drawer.complete(png);
+				memoryHits.increment();
+				return new Tile(png, "memory");
+			}
+			png = draw(type, z, x, y);
+			memory.put(key, png);
+			if (disk != null) {
+				disk.put(key, png);
+			}
+			drawer.complete(png);
+			return new Tile(png, "drawn");
+		} catch (IOException | RuntimeException e) {
+			drawer.completeExceptionally(e);
+			throw e;
+		} finally {
+			drawing.remove(key);
+		}
+	}
+
+	/**
+	 * Draws a tile and encodes it as a PNG. Max iterations grow with the zoom level, so deep tiles still show detail
+	 * @param type which fractal the tile is part of
+	 * @param z zoom level
+	 * @param x column
+	 * @param y row
+	 * @return PNG of the tile
+	 */
+	private byte[] draw(RenderJob.Type type, int z, long x, long y) throws IOException {
+		long start = System.nanoTime();
+		//Tile widths are powers of two, so the edges are exact in decimal
+		BigDecimal size = new BigDecimal(Math.scalb(4.0, -z));
+		BigDecimal left = type == RenderJob.Type.MANDELBROT ? new BigDecimal("-2.5") : new BigDecimal(-2);
+		BigDecimal top = new BigDecimal(-2);
+		BigDecimal xMin = left.add(size.multiply(BigDecimal.valueOf(x)));
+		BigDecimal yMin = top.add(size.multiply(BigDecimal.valueOf(y)));
+		int iterations = (int) Math.min(Integer.MAX_VALUE / 2, baseIterations + (long) zoomIterations * z);
+		FractalRenderer renderer;
+		try {
+			renderer = renderers.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while waiting for a renderer");
+		}
+		try {
+			BufferedImage image = renderer.render(renderer.newJob(type, TILE_SIZE, TILE_SIZE, xMin, xMin.add(size), yMin, yMin.add(size), iterations, cr, ci));
+			if (image == null) {
+				throw new IllegalStateException("render was cancelled");
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (PngWriter png = new PngWriter(bytes, TILE_SIZE, TILE_SIZE)) {
+				png.writeRows(image);
+			}
+			drawn.increment();
+			drawLatencies.add(System.nanoTime() - start);
+			return bytes.toByteArray();
+		} finally {
+			renderers.add(renderer);
+		}
+	}
+
+	/**
+	 * Writes the metrics as text, one per line
+	 * @return metrics
+	 */
+	private String metrics() {
+		long total = requests.sum();
+		long hits = memoryHits.sum() + diskHits.sum();
+		StringBuilder text = new StringBuilder();
+		text.append("tile_requests ").append(total).append('\n');
+		text.append("tile_memory_hits ").append(memoryHits.sum()).append('\n');
+		text.append("tile_disk_hits ").append(diskHits.sum()).append('\n');
+		text.append("tile_shared ").append(shared.sum()).append('\n');
+		text.append("tile_drawn ").append(drawn.sum()).append('\n');
+		text.append("tile_failed ").append(failed.sum()).append('\n');
+		text.append(String.format("tile_hit_ratio %.4f%n", total == 0 ? 0 : (double) hits / total));
+		text.append("tile_memory_bytes ").append(memory.getBytes()).append('\n');
+		text.append("tile_memory_tiles ").append(memory.size()).append('\n');
+		if (disk != null) {
+			text.append("tile_disk_bytes ").append(disk.getBytes()).append('\n');
+			text.append("tile_disk_tiles ").append(disk.size()).append('\n');
+		}
+		latencies.appendTo(text, "tile_latency");
+		drawLatencies.appendTo(text, "tile_draw_latency");
+		return text.toString();
+	}
+
+	/**
+	 * A PNG tile and where it came from
+	 */
+	private static final class Tile {
+		private final byte[] png;
+		private final String source;
+
+		public Tile(byte[] png, String source) {
+			this.png = png;
+			this.source = source;
+		}
+	}
+
+	/**
+	 * Counts latencies in buckets which double in width, so percentiles are known to within a factor of two
+	 * without keeping every latency
+	 */
+	private static final class Latencies {
+		private final AtomicLongArray buckets = new AtomicLongArray(64);
+		private final LongAdder count = new LongAdder(), total = new LongAdder();
+
+		/**
+		 * Counts a latency
+		 * @param nanos latency in nanoseconds
+		 */
+		public void add(long nanos) {
+			long micros = Math.max(1, nanos / 1000);
+			buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(micros));
+			count.increment();
+			total.add(nanos);
+		}
+
+		/**
+		 * Gets a percentile
+		 * @param percentile percentile from 0 to 100
+		 * @return upper bound of the bucket the percentile is in, in milliseconds
+		 */
+		public double percentile(double percentile) {
+			long rank = (long) Math.ceil(count.sum() * percentile / 100);
+			long seen = 0;
+			for (int i = 0; i < buckets.length(); i++) {
+				seen += buckets.get(i);
+				if (seen >= rank && seen > 0) {
+					return Math.scalb(1.0, i + 1) / 1000;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 * Writes the count, mean and percentiles as metrics
+		 * @param text text to add to
+		 * @param name prefix of the names of the metrics
+		 */
+		public void appendTo(StringBuilder text, String name) {
+			long n = count.sum();
+			text.append(name).append("_count ").append(n).append('\n');
+			text.append(String.format("%s_mean_ms %.3f%n", name, n == 0 ? 0 : total.sum() / 1e6 / n));
+			for (double percentile : new double[] {50, 90, 99}) {
+				text.append(String.format("%s_p%d_ms %.3f%n", name, (int) percentile, percentile(percentile)));
+			}
+		}
+	}
+
+	/**
+	 * PNG tiles kept in memory. When the cache is full the least recently used tiles are evicted
+	 */
+	private static final class PngCache {
+		private final long maxBytes;
+		private final LinkedHashMap<String, byte[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+		private long bytes;
+
+		public PngCache(long maxBytes) {
+			this.maxBytes = maxBytes;
+		}
+
+		public synchronized byte[] get(String key) {
+			return tiles.get(key);
+		}
+
+		public synchronized void put(String key, byte[] png) {
+			byte[] old = tiles.put(key, png);
+			bytes += png.length - (old == null ? 0 : old.length);
+			Iterator<byte[]> eldest = tiles.values().iterator();
+			while (bytes > maxBytes && eldest.hasNext()) {
+				bytes -= eldest.next().length;
+				eldest.remove();
+			}
+		}
+
+		public synchronized long getBytes() {
+			return bytes;
+		}
+
+		public synchronized int size() {
+			return tiles.size();
+		}
+	}
+
+	/**
+	 * PNG tiles kept in a directory, as {type}/{z}/{x}/{y}.png. The tiles already in the directory are found
+	 * when the server starts, and when the cache is full the least recently used tiles are deleted
+	 */
+	private static final class DiskCache {
+		private final Path directory;
+		private final long maxBytes;
+		private final LinkedHashMap<String, Long> tiles = new LinkedHashMap<>(16, 0.75f, true);
+		private long bytes;
+
+		public DiskCache(Path directory, long maxBytes) throws IOException {
+			this.directory = directory;
+			this.maxBytes = maxBytes;
+			Files.createDirectories(directory);
+			//Oldest first, so they are evicted first
+			List<Path> files;
+			try (Stream<Path> walk = Files.walk(directory)) {
+				files = walk.filter(file -> file.toString().endsWith(".png")).collect(Collectors.toCollection(ArrayList::new));
+			}
+			Map<Path, Long> modified = new HashMap<>();
+			for (Path file : files) {
+				modified.put(file, Files.getLastModifiedTime(file).toMillis());
+			}
+			files.sort(Comparator.comparing(modified::get));
+			for (Path file : files) {
+				String name = directory.relativize(file).toString().replace(File.separatorChar, '/');
+				long size = Files.size(file);
+				tiles.put(name.substring(0, name.length() - 4), size);
+				bytes += size;
+			}
+		}
+
+		/**
+		 * Reads a tile
+		 * @param key name of the tile
+		 * @return PNG of the tile, or null if it is not cached
+		 */
+		public byte[] get(String key) throws IOException {
+			synchronized (this) {
+				if (tiles.get(key) == null) {
+					return null;
+				}
+			}
+			try {
+				return Files.readAllBytes(file(key));
+			} catch (NoSuchFileException e) {
+				//Evicted since it was looked up
+				return null;
+			}
+		}
+
+		/**
+		 * Writes a tile, deleting the least recently used tiles if the cache goes over its budget. The tile is written
+		 * to a temporary file which is then moved into place, so a tile is never read half written
+		 * @param key name of the tile
+		 * @param png PNG of the tile
+		 */
+		public void put(String key, byte[] png) throws IOException {
+			Path file = file(key);
+			Files.createDirectories(file.getParent());
+			Path temporary = Files.createTempFile(file.getParent(), "tile", ".tmp");
+			Files.write(temporary, png);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			List<String> evicted = new ArrayList<>();
+			synchronized (this) {
+				Long old = tiles.put(key, (long) png.length);
+				bytes += png.length - (old == null ? 0 : old);
+				Iterator<Map.Entry<String, Long>> eldest = tiles.entrySet().iterator();
+				while (bytes > maxBytes && eldest.hasNext()) {
+					Map.Entry<String, Long> tile = eldest.next();
+					bytes -= tile.getValue();
+					evicted.add(tile.getKey());
+					eldest.remove();
+				}
+			}
+			for (String tile : evicted) {
+				Files.deleteIfExists(file(tile));
+			}
+		}
+
+		private Path file(String key) {
+			return directory.resolve(key + ".png");
+		}
+
+		public synchronized long getBytes() {
+			return bytes;
+		}
+
+		public synchronized int size() {
+			return tiles.size();
+		}
+	}
+}
@@ -0,0 +1,297 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Row kernel built on the Vector API. Each lane of a SIMD register iterates a point of the row, and once
+ * a lane's point escapes, reaches max iterations or is found to repeat itself its result is written and the
+ * lane starts on the next point of the row, so lanes are not left idle waiting for the slowest point.
+ * Does the same arithmetic and checks as EscapeTime, so every point gets the same result. The float methods
+ * use FloatVector, which has twice as many lanes as DoubleVector.
+ * Only loaded through RowKernel.VECTOR, as jdk.incubator.vector is not always available
+ */
+public class VectorRowKernel implements RowKernel {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+	@Override
+	public void mandelbrot(double[] real, double imaginary, int count, int maxIterations, boolean interiorChecks, double periodTolerance,
+			int[] iterations, int[] cycled, double[] zr, double[] zi) {
+		int[] queue = new int[count];
+		int queued = 0;
+		for (int i = 0; i < count; i++) {
+			if (interiorChecks && EscapeTime.inCardioidOrBulb(real[i], imaginary)) {
+				iterations[i] = EscapeTime.INSIDE;
+				cycled[i] = 0;
+				zr[i] = 0;
+				zi[i] = 0;
+			} else {
+				queue[queued++] = i;
+			}
+		}
+		iterate(real, imaginary, false, 0, imaginary, periodTolerance, queue, queued, maxIterations, iterations, cycled, zr, zi);
+	}
+
+	@Override
+	public void julia(double[] real, double imaginary, double cr, double ci, int count, int maxIterations, int[] iterations, double[] zr, double[] zi) {
+		int[] queue = new int[count];
+		for (int i = 0; i < count; i++) {
+			queue[i] = i;
+		}
+		iterate(real, imaginary, true, cr, ci, 0, queue, count, maxIterations, iterations, null, zr, zi);
+	}
+
+	@Override
+	public void mandelbrotFloat(double[] real, double imaginary, int count, int maxIterations, boolean interiorChecks, boolean periodicityChecks,
+			int[] iterations, int[] cycled, double[] zr, double[] zi) {
+		int[] queue = new int[count];
+		int queued = 0;
+		for (int i = 0; i < count; i++) {
+			if (interiorChecks && EscapeTime.inCardioidOrBulb((float) real[i], (float) imaginary)) {
+				iterations[i] = EscapeTime.INSIDE;
+				cycled[i] = 0;
+				zr[i] = 0;
+				zi[i] = 0;
+			} else {
+				queue[queued++] = i;
+			}
+		}
+		iterateFloat(real, (float) imaginary, false, 0, (float) imaginary, periodicityChecks, queue, queued, maxIterations, iterations, cycled, zr, zi);
+	}
+
+	@Override
+	public void juliaFloat(double[] real, double imaginary, double cr, double ci, int count, int maxIterations, int[] iterations, double[] zr, double[] zi) {
+		int[] queue = new int[count];
+		for (int i = 0; i < count; i++) {
+			queue[i] = i;
+		}
+		iterateFloat(real, (float) imaginary, true, (float) cr, (float) ci, false, queue, count, maxIterations, iterations, null, zr, zi);
+	}
+
+	/**
+	 * Iterates z = z^2 + c for the queued points, a lane at a time, and writes their results.
+	 * Lanes are only refilled when one of them stops, through arrays as the Vector API has no cheap way of
+	 * setting single lanes. Vectors are only made inside this method so they never have to be passed
+	 * between methods, which would stop the JIT from keeping them in registers
+	 * @param real real parts of the points
+	 * @param imaginary imaginary part of the points
+	 * @param julia true if the points are the starting z of a Juliaset, false if they are c of the Mandelbrot set
+	 * @param juliaCr real part of c of the Juliaset
+	 * @param ci imaginary part of c
+	 * @param periodTolerance how close the orbit of a point has to come back to itself for it to be treated as inside the set,
+	 * 0 for no periodicity checks
+	 * @param queue indices of the points to iterate
+	 * @param queued number of points to iterate
+	 * @param cycled iterations of the points found to repeat themselves, see RowKernel.mandelbrot
+	 */
+	private static void iterate(double[] real, double imaginary, boolean julia, double juliaCr, double ci, double periodTolerance,
+			int[] queue, int queued, int maxIterations, int[] iterations, int[] cycled, double[] zrOut, double[] ziOut) {
+		int lanes = SPECIES.length();
+		int[] point = new int[lanes];
+		double[] laneZr = new double[lanes], laneZi = new double[lanes], laneCr = new double[lanes], laneCounts = new double[lanes];
+		double[] laneSavedR = new double[lanes], laneSavedI = new double[lanes], laneCheckpoint = new double[lanes];
+		double[] laneOccupied = new double[lanes], laneStopped = new double[lanes], laneCycled = new double[lanes];
+		int next = 0;
+
+		//Lanes left empty once the queue runs out are not active, whatever they iterate is never written
+		for (int lane = 0; lane < lanes; lane++) {
+			laneOccupied[lane] = next < queued ? 1 : 0;
+			if (laneOccupied[lane] != 0) {
+				int p = queue[next++];
+				point[lane] = p;
+				laneZr[lane] = real[p];
+				laneZi[lane] = imaginary;
+				laneCr[lane] = julia ? juliaCr : real[p];
+			}
+			laneCheckpoint[lane] = 8;
+		}
+		DoubleVector zr = DoubleVector.fromArray(SPECIES, laneZr, 0);
+		DoubleVector zi = DoubleVector.fromArray(SPECIES, laneZi, 0);
+		DoubleVector cr = DoubleVector.fromArray(SPECIES, laneCr, 0);
+		DoubleVector counts = DoubleVector.zero(SPECIES);
+		DoubleVector savedR = zr, savedI = zi;
+		DoubleVector checkpoint = DoubleVector.fromArray(SPECIES, laneCheckpoint, 0);
+		VectorMask<Double> active = DoubleVector.fromArray(SPECIES, laneOccupied, 0).compare(VectorOperators.NE, 0);
+		//Masks are only made by comparing vectors, the generic mask methods shared by every species are slow
+		VectorMask<Double> none = counts.compare(VectorOperators.NE, 0);
+		VectorMask<Double> cycle = none;
+
+		while (active.anyTrue()) {
+			DoubleVector zr2 = zr.mul(zr);
+			DoubleVector zi2 = zi.mul(zi);
+			VectorMask<Double> done = active.and(zr2.add(zi2).compare(VectorOperators.LT, 4.0)
+					.and(counts.compare(VectorOperators.LT, maxIterations)).not()).or(cycle);
+
+			if (done.anyTrue()) {
+				zr.intoArray(laneZr, 0);
+				zi.intoArray(laneZi, 0);
+				cr.intoArray(laneCr, 0);
+				counts.intoArray(laneCounts, 0);
+				savedR.intoArray(laneSavedR, 0);
+				savedI.intoArray(laneSavedI, 0);
+				checkpoint.intoArray(laneCheckpoint, 0);
+				counts.blend(-1, done).intoArray(laneStopped, 0);
+				counts.blend(-1, cycle).intoArray(laneCycled, 0);
+				for (int lane = 0; lane < lanes; lane++) {
+					if (laneStopped[lane] >= 0) {
+						continue;
+					}
+					int p = point[lane];
+					if (laneCycled[lane] < 0) {
+						iterations[p] = EscapeTime.INSIDE;
+						cycled[p] = (int) laneCounts[lane];
+					} else {
+						iterations[p] = (int) laneCounts[lane];
+					}
+					zrOut[p] = laneZr[lane];
+					ziOut[p] = laneZi[lane];
+
+					laneOccupied[lane] = next < queued ? 1 : 0;
+					if (laneOccupied[lane] != 0) {
+						p = queue[next++];
+						point[lane] = p;
+						laneZr[lane] = real[p];
+						laneZi[lane] = imaginary;
+						laneCr[lane] = julia ? juliaCr : real[p];
+						laneCounts[lane] = 0;
+						laneSavedR[lane] = laneZr[lane];
+						laneSavedI[lane] = laneZi[lane];
+						laneCheckpoint[lane] = 8;
+					}
+				}
+				zr = DoubleVector.fromArray(SPECIES, laneZr, 0);
+				zi = DoubleVector.fromArray(SPECIES, laneZi, 0);
+				cr = DoubleVector.fromArray(SPECIES, laneCr, 0);
+				counts = DoubleVector.fromArray(SPECIES, laneCounts, 0);
+				savedR = DoubleVector.fromArray(SPECIES, laneSavedR, 0);
+				savedI = DoubleVector.fromArray(SPECIES, laneSavedI, 0);
+				checkpoint = DoubleVector.fromArray(SPECIES, laneCheckpoint, 0);
+				active = DoubleVector.fromArray(SPECIES, laneOccupied, 0).compare(VectorOperators.NE, 0);
+				cycle = none;
+				//New points have to be checked before their first iteration
+				continue;
+			}
+
+			zi = zr.add(zr).mul(zi).add(ci);
+			zr = zr2.sub(zi2).add(cr);
+			counts = counts.add(1);
+
+			if (periodTolerance > 0) {
+				cycle = active.and(zr.sub(savedR).abs().compare(VectorOperators.LT, periodTolerance))
+						.and(zi.sub(savedI).abs().compare(VectorOperators.LT, periodTolerance));
+				VectorMask<Double> save = counts.compare(VectorOperators.EQ, checkpoint);
+				savedR = savedR.blend(zr, save);
+				savedI = savedI.blend(zi, save);
+				checkpoint = checkpoint.blend(checkpoint.mul(2), save);
+			}
+		}
+	}
+
+	/**
+	 * Same as iterate in floats, with twice as many lanes. Like EscapeTime, the periodicity checks only
+	 * find orbits which come back to exactly the saved value
+	 */
+	private static void iterateFloat(double[] real, float imaginary, boolean julia, float juliaCr, float ci, boolean periodicityChecks,
+			int[] queue, int queued, int maxIterations, int[] iterations, int[] cycled, double[] zrOut, double[] ziOut) {
+		int lanes = FLOAT_SPECIES.length();
+		int[] point = new int[lanes];
+		float[] laneZr = new float[lanes], laneZi = new float[lanes], laneCr = new float[lanes], laneCounts = new float[lanes];
+		float[] laneSavedR = new float[lanes], laneSavedI = new float[lanes], laneCheckpoint = new float[lanes];
+		float[] laneOccupied = new float[lanes], laneStopped = new float[lanes], laneCycled = new float[lanes];
+		int next = 0;
+
+		//Lanes left empty once the queue runs out are not active, whatever they iterate is never written
+		for (int lane = 0; lane < lanes; lane++) {
+			laneOccupied[lane] = next < queued ? 1 : 0;
+			if (laneOccupied[lane] != 0) {
+				int p = queue[next++];
+				point[lane] = p;
+				laneZr[lane] = (float) real[p];
+				laneZi[lane] = imaginary;
+				laneCr[lane] = julia ? juliaCr : (float) real[p];
+			}
+			laneCheckpoint[lane] = 8;
+		}
+		FloatVector zr = FloatVector.fromArray(FLOAT_SPECIES, laneZr, 0);
+		FloatVector zi = FloatVector.fromArray(FLOAT_SPECIES, laneZi, 0);
+		FloatVector cr = FloatVector.fromArray(FLOAT_SPECIES, laneCr, 0);
+		FloatVector counts = FloatVector.zero(FLOAT_SPECIES);
+		FloatVector savedR = zr, savedI = zi;
+		FloatVector checkpoint = FloatVector.fromArray(FLOAT_SPECIES, laneCheckpoint, 0);
+		VectorMask<Float> active = FloatVector.fromArray(FLOAT_SPECIES, laneOccupied, 0).compare(VectorOperators.NE, 0);
+		//Masks are only made by comparing vectors, the generic mask methods shared by every species are slow
+		VectorMask<Float> none = counts.compare(VectorOperators.NE, 0);
+		VectorMask<Float> cycle = none;
+
+		while (active.anyTrue()) {
+			FloatVector zr2 = zr.mul(zr);
+			FloatVector zi2 = zi.mul(zi);
+			VectorMask<Float> done = active.and(zr2.add(zi2).compare(VectorOperators.LT, 4.0f)
+					.and(counts.compare(VectorOperators.LT, (float) maxIterations)).not()).or(cycle);
+
+			if (done.anyTrue()) {
+				zr.intoArray(laneZr, 0);
+				zi.intoArray(laneZi, 0);
+				cr.intoArray(laneCr, 0);
+				counts.intoArray(laneCounts, 0);
+				savedR.intoArray(laneSavedR, 0);
+				savedI.intoArray(laneSavedI, 0);
+				checkpoint.intoArray(laneCheckpoint, 0);
+				counts.blend(-1, done).intoArray(laneStopped, 0);
+				counts.blend(-1, cycle).intoArray(laneCycled, 0);
+				for (int lane = 0; lane < lanes; lane++) {
+					if (laneStopped[lane] >= 0) {
+						continue;
+					}
+					int p = point[lane];
+					if (laneCycled[lane] < 0) {
+						iterations[p] = EscapeTime.INSIDE;
+						cycled[p] = (int) laneCounts[lane];
+					} else {
+						iterations[p] = (int) laneCounts[lane];
+					}
+					zrOut[p] = laneZr[lane];
+					ziOut[p] = laneZi[lane];
+
+					laneOccupied[lane] = next < queued ? 1 : 0;
+					if (laneOccupied[lane] != 0) {
+						p = queue[next++];
+						point[lane] = p;
+						laneZr[lane] = (float) real[p];
+						laneZi[lane] = imaginary;
+						laneCr[lane] = julia ? juliaCr : (float) real[p];
+						laneCounts[lane] = 0;
+						laneSavedR[lane] = laneZr[lane];
+						laneSavedI[lane] = laneZi[lane];
+						laneCheckpoint[lane] = 8;
+					}
+				}
+				zr = FloatVector.fromArray(FLOAT_SPECIES, laneZr, 0);
+				zi = FloatVector.fromArray(FLOAT_SPECIES, laneZi, 0);
+				cr = FloatVector.fromArray(FLOAT_SPECIES, laneCr, 0);
+				counts = FloatVector.fromArray(FLOAT_SPECIES, laneCounts, 0);
+				savedR = FloatVector.fromArray(FLOAT_SPECIES, laneSavedR, 0);
+				savedI = FloatVector.fromArray(FLOAT_SPECIES, laneSavedI, 0);
+				checkpoint = FloatVector.fromArray(FLOAT_SPECIES, laneCheckpoint, 0);
+				active = FloatVector.fromArray(FLOAT_SPECIES, laneOccupied, 0).compare(VectorOperators.NE, 0);
+				cycle = none;
+				//New points have to be checked before their first iteration
+				continue;
+			}
+
+			zi = zr.add(zr).mul(zi).add(ci);
+			zr = zr2.sub(zi2).add(cr);
+			counts = counts.add(1);
+
+			if (periodicityChecks) {
+				cycle = active.and(zr.compare(VectorOperators.EQ, savedR)).and(zi.compare(VectorOperators.EQ, savedI));
+				VectorMask<Float> save = counts.compare(VectorOperators.EQ, checkpoint);
+				savedR = savedR.blend(zr, save);
+				savedI = savedI.blend(zi, save);
+				checkpoint = checkpoint.blend(checkpoint.mul(2), save);
+			}
+		}
+	}
+}
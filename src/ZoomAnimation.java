@@ -0,0 +1,397 @@
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.IllegalFormatException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders the frames of a zoom animation to numbered PNG files without opening a window, from a path of keyframes.
+ * Run with java -Djava.awt.headless=true ZoomAnimation [-parallel n] keyframes [setting=value ...]
+ * <p>
+ * Each line of the keyframe file is a keyframe, blank lines and lines starting with # are skipped:
+ * <pre>
+ * re im scale iterations   centre of the view, its width in the complex plane and max iterations
+ * </pre>
+ * Between two keyframes the scale changes by the same factor every frame, the centre moves in step with
+ * the scale and max iterations change linearly. Any setting which is left out takes its default:
+ * <pre>
+ * type=mandelbrot                mandelbrot or julia
+ * size=640x360                   width x height of the frames in pixels
+ * frames=30                      frames from one keyframe to the next
+ * c=-0.8,0.156                   c of the Juliaset
+ * palette=hue                    hue, fire or greyscale
+ * out=frames/frame%05d.png       file of each frame, %05d is replaced by the number of the frame
+ * key=2                          resolution of key frames, 1 to draw every frame on its own
+ * </pre>
+ * Frames are drawn from key frames. A key frame is the view of a frame drawn at key times the resolution,
+ * the frames after it which are inside its view and at most key times smaller are resampled from it
+ * instead of being iterated. Zooms too fast to get more than key squared frames from a key frame draw every frame. The reference orbit of the deepest frame is worked out once and shared by every
+ * key frame it covers. -parallel sets how many key frames are drawn at once, the render threads are shared out between them
+ */
+public class ZoomAnimation {
+	private static final String DEFAULTS = "type=mandelbrot size=640x360 frames=30 c=-0.8,0.156 palette=hue out=frames/frame%05d.png key=2";
+
+	public static void main(String[] args) throws InterruptedException {
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
+		String keyframeFile = null;
+		int parallel = 1;
+		Map<String, String> settings = new LinkedHashMap<>();
+		try {
+			BatchRender.parse(DEFAULTS, settings, DEFAULTS);
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-parallel") && i + 1 < args.length) {
+					parallel = Integer.parseInt(args[++i]);
+				} else if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+				} else if (args[i].contains("=")) {
+					BatchRender.parse(args[i], settings, DEFAULTS);
+				} else if (keyframeFile == null) {
+					keyframeFile = args[i];
+				} else {
+					throw new IllegalArgumentException("Only one keyframe file: " + args[i]);
+				}
+			}
+			if (keyframeFile == null) {
+				throw new IllegalArgumentException("No keyframe file");
+			}
+			if (parallel < 1) {
+				throw new IllegalArgumentException("Parallel key frames must be positive: " + parallel);
+			}
+			Animation animation = new Animation(settings, readKeyframes(keyframeFile));
+			int failed = animation.render(parallel, Integer.getInteger("fractal.threads", Runtime.getRuntime().availableProcessors()));
+			System.exit(failed == 0 ? 0 : 1);
+		} catch (IllegalArgumentException | IOException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: java -Djava.awt.headless=true ZoomAnimation [-parallel n] keyframes [setting=value ...]");
+			System.err.println("Settings and defaults: " + DEFAULTS);
+			System.exit(2);
+		}
+	}
+
+	/**
+	 * Reads the keyframes of a file
+	 * @param file keyframe file
+	 * @return keyframes, at least one
+	 */
+	private static List<Keyframe> readKeyframes(String file) throws IOException {
+		List<Keyframe> keyframes = new ArrayList<>();
+		for (String line : Files.readAllLines(Paths.get(file))) {
+			if (line.isBlank() || line.trim().startsWith("#")) {
+				continue;
+			}
+			BigDecimal[] numbers = BatchRender.numbers(line.trim().replaceAll("\\s+", ","), 4, "keyframe");
+			double scale = numbers[2].doubleValue();
+			int iterations = numbers[3].intValue();
+			if (!(scale > 0) || Double.isInfinite(scale) || iterations < 1) {
+				throw new IllegalArgumentException("scale and iterations of a keyframe must be positive: " + line);
+			}
+			keyframes.add(new Keyframe(numbers[0], numbers[1], scale, iterations));
+		}
+		if (keyframes.isEmpty()) {
+			throw new IllegalArgumentException(file + " has no keyframes");
+		}
+		return keyframes;
+	}
+
+	/**
+	 * A point of the path of the zoom
+	 */
+	private static final class Keyframe {
+		private final BigDecimal re, im;
+		private final double scale;
+		private final int iterations;
+
+		public Keyframe(BigDecimal re, BigDecimal im, double scale, int iterations) {
+			this.re = re;
+			this.im = im;
+			this.scale = scale;
+			this.iterations = iterations;
+		}
+	}
+
+	/**
+	 * The view of one frame of the animation
+	 */
+	private static final class Frame {
+		private final int number, iterations;
+		private final BigDecimal re, im, xMin, xMax, yMin, yMax;
+		private final double scale;
+
+		/**
+		 * Constructor for Frame, the view is worked out from its centre and scale
+		 * @param number number of the frame, from 0
+		 * @param re real part of the centre
+		 * @param im imaginary part of the centre
+		 * @param scale width of the view in the complex plane
+		 * @param aspect height of the frame divided by its width
+		 * @param iterations max iterations
+		 */
+		public Frame(int number, BigDecimal re, BigDecimal im, double scale, double aspect, int iterations) {
+			this.number = number;
+			this.re = re;
+			this.im = im;
+			this.scale = scale;
+			this.iterations = iterations;
+			BigDecimal halfWidth = new BigDecimal(scale / 2);
+			BigDecimal halfHeight = new BigDecimal(scale * aspect / 2);
+			xMin = re.subtract(halfWidth);
+			xMax = re.add(halfWidth);
+			yMin = im.negate().subtract(halfHeight);
+			yMax = im.negate().add(halfHeight);
+		}
+
+		/**
+		 * Checks if the view of another frame is inside the view of this frame
+		 * @param other frame to check
+		 * @return true if it is inside
+		 */
+		public boolean contains(Frame other) {
+			return other.xMin.compareTo(xMin) >= 0 && other.xMax.compareTo(xMax) <= 0
+					&& other.yMin.compareTo(yMin) >= 0 && other.yMax.compareTo(yMax) <= 0;
+		}
+	}
+
+	/**
+	 * The frames of an animation and how they are drawn, read from its settings
+	 */
+	private static final class Animation {
+		private final RenderJob.Type type;
+		private final int width, height, key;
+		private final double cr, ci;
+		private final Palette palette;
+		private final String out;
+		private final List<Frame> frames = new ArrayList<>();
+
+		public Animation(Map<String, String> settings, List<Keyframe> keyframes) {
+			type = BatchRender.type(settings.get("type"));
+			String[] size = settings.get("size").split("x");
+			int perSegment;
+			try {
+				width = Integer.parseInt(size[0]);
+				height = size.length == 2 ? Integer.parseInt(size[1]) : -1;
+				perSegment = Integer.parseInt(settings.get("frames"));
+				key = Integer.parseInt(settings.get("key"));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("size is widthxheight, frames and key whole numbers: " + e.getMessage());
+			}
+			if (width < 1 || height < 1 || perSegment < 1 || key < 1) {
+				throw new IllegalArgumentException("size, frames and key must be positive");
+			}
+			BigDecimal[] c = BatchRender.numbers(settings.get("c"), 2, "c");
+			cr = c[0].doubleValue();
+			ci = c[1].doubleValue();
+			palette = BatchRender.palette(settings.get("palette"));
+			out = settings.get("out");
+			try {
+				String.format(out, 0);
+			} catch (IllegalFormatException e) {
+				throw new IllegalArgumentException("out needs one number such as %05d: " + out);
+			}
+
+			int count = (keyframes.size() - 1) * perSegment + 1;
+			for (int i = 0; i < count; i++) {
+				int segment = Math.min(i / perSegment, Math.max(0, keyframes.size() - 2));
+				double t = (double) (i - segment * perSegment) / perSegment;
+				Keyframe a = keyframes.get(segment);
+				frames.add(frame(i, a, keyframes.get(Math.min(segment + 1, keyframes.size() - 1)), t));
+			}
+		}
+
+		/**
+		 * Works out a frame between two keyframes. The scale changes by the same factor every frame, and the centre
+		 * moves the same fraction of the way to the next keyframe as the scale, so a zoom into a point heads
+		 * straight for it
+		 * @param number number of the frame
+		 * @param a keyframe before the frame
+		 * @param b keyframe after the frame
+		 * @param t how far the frame is from a to b, from 0 to 1
+		 * @return frame
+		 */
+		private Frame frame(int number, Keyframe a, Keyframe b, double t) {
+			double scale = a.scale * Math.pow(b.scale / a.scale, t);
+			double towardsA = a.scale == b.scale ? 1 - t : (scale - b.scale) / (a.scale - b.scale);
+			BigDecimal fraction = new BigDecimal(towardsA);
+			//Enough digits to tell the pixels of the frame apart, without the digits of every product piling up
+			MathContext mc = new MathContext(ReferenceOrbit.precisionFor(scale / width / key));
+			BigDecimal re = b.re.subtract(b.re.subtract(a.re).multiply(fraction), mc);
+			BigDecimal im = b.im.subtract(b.im.subtract(a.im).multiply(fraction), mc);
+			int iterations = (int) Math.round(a.iterations + (b.iterations - a.iterations) * t);
+			return new Frame(number, re, im, scale, (double) height / width, iterations);
+		}
+
+		/**
+		 * Splits the frames into groups drawn from one key frame each. A group starts at a frame and takes
+		 * the frames after it which are inside its view and no more than key times smaller,
+		 * so the key frame has at least as many pixels across each of them as the frame itself.
+		 * A key frame has key squared times the pixels of a frame, so a group of no more frames than that
+		 * would cost more than drawing each frame, and is split into groups of one frame
+		 * @return groups of frames, in order
+		 */
+		private List<List<Frame>> groups() {
+			List<List<Frame>> groups = new ArrayList<>();
+			for (int i = 0; i < frames.size();) {
+				Frame first = frames.get(i);
+				int j = i + 1;
+				while (key > 1 && j < frames.size() && first.contains(frames.get(j)) && frames.get(j).scale * key >= first.scale) {
+					j++;
+				}
+				if (j - i <= key * key) {
+					j = i + 1;
+				}
+				groups.add(frames.subList(i, j));
+				i = j;
+			}
+			return groups;
+		}
+
+		/**
+		 * Renders every frame, drawing several key frames at once. Each key frame being drawn has a renderer
+		 * of its own, with an even share of the render threads, and renderers are used again for the key frames after it
+		 * @param parallel number of key frames drawn at once
+		 * @param threads number of render threads shared out between the key frames drawn at once
+		 * @return number of frames which could not be rendered or saved
+		 */
+		public int render(int parallel, int threads) throws InterruptedException {
+			long start = System.nanoTime();
+			List<List<Frame>> groups = groups();
+			parallel = Math.min(parallel, groups.size());
+			BlockingQueue<FractalRenderer> renderers = new ArrayBlockingQueue<>(parallel);
+			for (int i = 0; i < parallel; i++) {
+				FractalRenderer renderer = new FractalRenderer("zoom-" + i, Math.max(1, threads / parallel), Boolean.getBoolean("fractal.virtualThreads"));
+				renderer.setPalette(palette);
+				renderers.add(renderer);
+			}
+			File parent = new File(String.format(out, 0)).getParentFile();
+			if (parent != null) {
+				parent.mkdirs();
+			}
+			ReferenceOrbit orbit = deepestOrbit(renderers.peek());
+			AtomicInteger failed = new AtomicInteger();
+			ExecutorService pool = Executors.newFixedThreadPool(parallel);
+			for (List<Frame> group : groups) {
+				pool.execute(() -> {
+					FractalRenderer renderer = renderers.remove();
+					try {
+						long groupStart = System.nanoTime();
+						render(renderer, group, orbit);
+						System.out.printf("frames %d-%d %d ms%n", group.get(0).number, group.get(group.size() - 1).number,
+								(System.nanoTime() - groupStart) / 1000000);
+					} catch (IOException | RuntimeException e) {
+						System.err.println("frames " + group.get(0).number + "-" + group.get(group.size() - 1).number + ": " + e);
+						failed.addAndGet(group.size());
+					} finally {
+						renderers.add(renderer);
+					}
+				});
+			}
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+			renderers.forEach(FractalRenderer::shutdown);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.printf("%d frames from %d key frames in %.1f s, %.1f frames per minute%n",
+					frames.size(), groups.size(), seconds, frames.size() * 60 / seconds);
+			return failed.get();
+		}
+
+		/**
+		 * Renders a group of frames. A group of one frame is drawn on its own, otherwise the key frame
+		 * is drawn uncoloured at key times the resolution and every frame is resampled from it
+		 * @param renderer renderer to draw with, no other group is drawn with it at the same time
+		 * @param group frames to render
+		 * @param orbit reference orbit shared by the key frames it covers, may be null
+		 */
+		private void render(FractalRenderer renderer, List<Frame> group, ReferenceOrbit orbit) throws IOException {
+			Frame first = group.get(0);
+			if (group.size() == 1) {
+				RenderJob job = job(renderer, first, 1, first.iterations);
+				share(renderer, orbit, job);
+				save(first, renderer.render(job));
+				return;
+			}
+			int iterations = group.stream().mapToInt(frame -> frame.iterations).max().getAsInt();
+			RenderJob keyFrame = job(renderer, first, key, iterations);
+			share(renderer, orbit, keyFrame);
+			if (!renderer.renderUncoloured(keyFrame)) {
+				throw new IllegalStateException("render was cancelled");
+			}
+			for (Frame frame : group) {
+				BufferedImage image = renderer.resample(job(renderer, frame, 1, frame.iterations));
+				if (image == null) {
+					throw new IllegalStateException("frame " + frame.number + " is not inside its key frame");
+				}
+				save(frame, image);
+			}
+		}
+
+		/**
+		 * Makes the job of the view of a frame
+		 * @param renderer renderer the job is for
+		 * @param frame frame
+		 * @param resolution times the size of the frames
+		 * @param iterations max iterations
+		 * @return job
+		 */
+		private RenderJob job(FractalRenderer renderer, Frame frame, int resolution, int iterations) {
+			return renderer.newJob(type, width * resolution, height * resolution, frame.xMin, frame.xMax, frame.yMin, frame.yMax, iterations, cr, ci);
+		}
+
+		/**
+		 * Works out the reference orbit of the centre of the deepest frame once, if it is drawn by perturbation.
+		 * A zoom into a point has that point inside every frame, so the orbit covers every deep frame
+		 * on the way and no key frame has to work out one of its own
+		 * @param renderer renderer which picks the arithmetic of the frames
+		 * @return reference orbit, null if no frame is drawn by perturbation
+		 */
+		private ReferenceOrbit deepestOrbit(FractalRenderer renderer) {
+			Frame deepest = frames.get(0);
+			int iterations = 0;
+			for (Frame frame : frames) {
+				deepest = frame.scale < deepest.scale ? frame : deepest;
+				iterations = Math.max(iterations, frame.iterations);
+			}
+			RenderJob job = new RenderJob(type, width * key, height * key, deepest.xMin, deepest.xMax, deepest.yMin, deepest.yMax, iterations, cr, ci, 0);
+			if (renderer.arithmeticFor(job) != FractalRenderer.Arithmetic.PERTURBATION) {
+				return null;
+			}
+			return ReferenceOrbit.mandelbrot(deepest.re, deepest.im, iterations, ReferenceOrbit.precisionFor(job.getPixelSize()), () -> false);
+		}
+
+		/**
+		 * Gives a renderer the shared reference orbit if it covers a frame, otherwise the renderer keeps its own
+		 * @param renderer renderer to draw the frame with
+		 * @param orbit shared reference orbit, may be null
+		 * @param job frame
+		 */
+		private void share(FractalRenderer renderer, ReferenceOrbit orbit, RenderJob job) {
+			if (orbit != null && orbit.covers(job)) {
+				renderer.setReferenceOrbit(orbit);
+			}
+		}
+
+		/**
+		 * Saves the image of a frame to its numbered file
+		 * @param frame frame
+		 * @param image image of the frame, null if it was cancelled
+		 */
+		private void save(Frame frame, BufferedImage image) throws IOException {
+			if (image == null) {
+				throw new IllegalStateException("render was cancelled");
+			}
+			try (PngWriter png = new PngWriter(new FileOutputStream(String.format(out, frame.number)), width, height)) {
+				png.writeRows(image);
+			}
+		}
+	}
+}